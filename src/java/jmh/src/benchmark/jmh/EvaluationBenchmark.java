@@ -0,0 +1,112 @@
+package benchmark.jmh;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import general.Cluster;
+import general.CompactSolution;
+import general.Instance;
+import general.RandomInstance;
+import general.Solution;
+import heuristic.DivergenceException;
+import heuristic.Heuristic;
+
+// Evaluation paths on the solution of the heuristic, or on one box per class when the heuristic diverges
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class EvaluationBenchmark
+{
+	@Param({ "2", "10" })
+	public int dimension;
+
+	@Param({ "1000", "10000" })
+	public int points;
+
+	@Param({ "2", "4" })
+	public int clusters;
+
+	@Param({ "0.5", "1.5" })
+	public double dispersion;
+
+	private Instance _instance;
+	private Solution _solution;
+	private Cluster _cluster;
+	private CompactSolution _compact;
+	private int _next;
+
+	@Setup
+	public void setup()
+	{
+		_instance = RandomInstance.generate(dimension, points, clusters, dispersion);
+
+		Heuristic heuristic = new Heuristic(_instance);
+		heuristic.setVerbose(false);
+		heuristic.setMaxIterations(1000);
+
+		try
+		{
+			_solution = heuristic.run();
+		}
+		catch(DivergenceException e)
+		{
+			_solution = new Solution();
+			for(int i=0; i<_instance.getClasses(); ++i)
+				_solution.add(Cluster.withAllPoints(_instance, i));
+		}
+
+		_cluster = _solution.getClusters().stream().max(Comparator.comparingInt(c -> c.size())).get();
+		_compact = CompactSolution.fromSolution(_instance, _solution);
+	}
+
+	@Benchmark
+	public int clusterMisclassified()
+	{
+		return _cluster.misclassified(_instance).size();
+	}
+
+	@Benchmark
+	public int solutionMisclassified()
+	{
+		return _solution.misclassified(_instance);
+	}
+
+	// Objective change of taking each point out of its cluster in turn
+	@Benchmark
+	public int compactDeltaMove()
+	{
+		_next = (_next + 1) % _instance.getPoints();
+		return _compact.deltaMove(_next, -1);
+	}
+
+	@Benchmark
+	public double clusterCentroid()
+	{
+		return _cluster.centroid().get(0);
+	}
+
+	@Benchmark
+	public double instanceBounds()
+	{
+		double ret = 0;
+		for(int t=0; t<_instance.getDimension(); ++t)
+			ret += _instance.max(t) - _instance.min(t);
+
+		return ret;
+	}
+}
@@ -0,0 +1,62 @@
+package benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import general.Instance;
+import general.RandomInstance;
+import general.Solution;
+import heuristic.Heuristic;
+
+// Full runs of the heuristic over the same grid of random instances as benchmark.Benchmarks
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class HeuristicBenchmark
+{
+	@Param({ "2", "10" })
+	public int dimension;
+
+	@Param({ "1000", "10000" })
+	public int points;
+
+	@Param({ "2", "4" })
+	public int clusters;
+
+	@Param({ "0.5", "1.5" })
+	public double dispersion;
+
+	private Heuristic _heuristic;
+
+	@Setup
+	public void setup()
+	{
+		Instance instance = RandomInstance.generate(dimension, points, clusters, dispersion);
+
+		_heuristic = new Heuristic(instance);
+		_heuristic.setVerbose(false);
+
+		// Some instances cycle or diverge, the cap keeps every run finite
+		_heuristic.setMaxIterations(1000);
+	}
+
+	@Benchmark
+	public Solution run()
+	{
+		return _heuristic.run();
+	}
+}
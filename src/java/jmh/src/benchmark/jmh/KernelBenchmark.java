@@ -0,0 +1,100 @@
+package benchmark.jmh;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import general.Vectors;
+
+// Scalar against SIMD kernels on the same data, as benchmark.KernelBenchmarks
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class KernelBenchmark
+{
+	@Param({ "64", "128", "256" })
+	public int dimension;
+
+	@Param({ "16" })
+	public int centroids;
+
+	@Param({ "4096" })
+	public int points;
+
+	@Param({ "false", "true" })
+	public boolean simd;
+
+	private double[] _coordinates;
+	private double[] _others;
+	private int[] _indexes;
+	private double[] _min;
+	private double[] _max;
+	private double[] _distances;
+	private int _next;
+
+	@Setup
+	public void setup()
+	{
+		if( Vectors.setSimd(simd) != simd )
+			throw new RuntimeException("SIMD kernels not available, run with --add-modules jdk.incubator.vector");
+
+		Random random = new Random(0);
+		_coordinates = random.doubles(points * dimension).toArray();
+		_others = random.doubles(centroids * dimension).toArray();
+		_indexes = new int[points];
+		for(int i=0; i<points; ++i)
+			_indexes[i] = i;
+
+		// Narrowing four coordinates keeps about half of the points inside, so most checks scan every coordinate
+		_min = new double[dimension];
+		_max = new double[dimension];
+		Arrays.fill(_max, 1);
+		for(int t=0; t<4; ++t)
+			_min[t * dimension / 4] = 0.16;
+
+		_distances = new double[centroids];
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		Vectors.setSimd(false);
+	}
+
+	@Benchmark
+	public double squaredDistance()
+	{
+		_next = (_next + 1) % points;
+		return Vectors.squaredDistance(_coordinates, _next * dimension, _others, 0, dimension);
+	}
+
+	@Benchmark
+	public double squaredDistances()
+	{
+		_next = (_next + 1) % points;
+		Vectors.squaredDistances(_coordinates, _next * dimension, _others, centroids, dimension, _distances);
+		return _distances[0];
+	}
+
+	@Benchmark
+	public int countInside()
+	{
+		return Vectors.countInside(_min, _max, _coordinates, _indexes, 0, points, dimension);
+	}
+}
@@ -0,0 +1,146 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import general.Cluster;
+import general.CompactSolution;
+import general.Instance;
+import general.RandomInstance;
+import general.Solution;
+import heuristic.Heuristic;
+import heuristic.MultiStart;
+
+// Quick benchmarks of the heuristic and evaluation paths, independent of CPLEX; the JMH versions are in the jmh module
+// Usage: Benchmarks [dimension=2,10] [points=1000,10000] [clusters=2,4] [dispersion=0.5,1.5] [restarts=0] [out=benchmarks.json]
+public class Benchmarks
+{
+	public static void main(String[] args) throws IOException
+	{
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("dimension", "2,10");
+		options.put("points", "1000,10000");
+		options.put("clusters", "2,4");
+		options.put("dispersion", "0.5,1.5");
+		options.put("warmup", "3");
+		options.put("iterations", "5");
+		options.put("out", "benchmarks.json");
+		options.put("restarts", "0");
+
+		for(String arg: args)
+		{
+			if( arg.indexOf('=') == -1 )
+				throw new RuntimeException("Invalid argument: " + arg);
+
+			options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+
+		Harness harness = new Harness();
+		harness.setWarmup(Integer.parseInt(options.get("warmup")));
+		harness.setIterations(Integer.parseInt(options.get("iterations")));
+
+		for(int dimension: integers(options.get("dimension")))
+		for(int points: integers(options.get("points")))
+		for(int clusters: integers(options.get("clusters")))
+		for(double dispersion: doubles(options.get("dispersion")))
+		{
+			Map<String, String> params = new LinkedHashMap<String, String>();
+			params.put("dimension", String.valueOf(dimension));
+			params.put("points", String.valueOf(points));
+			params.put("clusters", String.valueOf(clusters));
+			params.put("dispersion", String.valueOf(dispersion));
+
+			Instance instance = RandomInstance.generate(dimension, points, clusters, dispersion);
+			run(harness, params, instance);
+
+			if( Integer.parseInt(options.get("restarts")) > 0 )
+				restarts(harness, params, instance, Integer.parseInt(options.get("restarts")));
+		}
+
+		harness.writeJson(options.get("out"));
+	}
+
+	private static void run(Harness harness, Map<String, String> params, Instance instance)
+	{
+		Heuristic heuristic = new Heuristic(instance);
+		heuristic.setVerbose(false);
+
+		Solution solution = null;
+		try
+		{
+			solution = heuristic.run();
+			report(harness.measure("Heuristic.run", params, () -> heuristic.run().size()));
+		}
+		catch(RuntimeException e)
+		{
+			// The centroids can diverge on large instances, evaluation is then measured on one box per class
+			System.out.println("Heuristic.run " + params + " | failed: " + e);
+
+			solution = new Solution();
+			for(int i=0; i<instance.getClasses(); ++i)
+				solution.add(Cluster.withAllPoints(instance, i));
+		}
+
+		Solution evaluated = solution;
+		Cluster cluster = evaluated.getClusters().stream().max(Comparator.comparingInt(c -> c.size())).get();
+
+		report(harness.measure("Cluster.misclassified", params, () -> cluster.misclassified(instance).size()));
+		report(harness.measure("Solution.misclassified", params, () -> evaluated.misclassified(instance)));
+
+		// Objective change of taking each point out of its cluster in turn, against the full evaluation above
+		CompactSolution compact = CompactSolution.fromSolution(instance, evaluated);
+		int[] next = new int[1];
+		report(harness.measure("CompactSolution.deltaMove", params, () ->
+		{
+			next[0] = (next[0] + 1) % instance.getPoints();
+			return compact.deltaMove(next[0], -1);
+		}));
+		report(harness.measure("Cluster.centroid", params, () -> cluster.centroid().get(0)));
+		report(harness.measure("Instance.min/max", params, () ->
+		{
+			double ret = 0;
+			for(int t=0; t<instance.getDimension(); ++t)
+				ret += instance.max(t) - instance.min(t);
+
+			return ret;
+		}));
+	}
+
+	// Best objective after 1, 2, 4, ... restarts of the heuristic, from a single multi-start run
+	private static void restarts(Harness harness, Map<String, String> params, Instance instance, int restarts)
+	{
+		MultiStart multiStart = new MultiStart(instance);
+		multiStart.setRestarts(restarts);
+		multiStart.setVerbose(false);
+		multiStart.run();
+
+		int[] convergence = multiStart.getConvergence();
+		for(int k=1; k<=convergence.length; k*=2)
+		{
+			Map<String, String> row = new LinkedHashMap<String, String>(params);
+			row.put("restarts", String.valueOf(k));
+
+			// Integer.MAX_VALUE while every restart so far has diverged
+			report(harness.record("MultiStart.objective", row, convergence[k-1], "misclassified"));
+		}
+	}
+
+	private static void report(Harness.Result result)
+	{
+		System.out.println(result);
+	}
+
+	private static int[] integers(String values)
+	{
+		return Arrays.stream(values.split(",")).mapToInt(Integer::parseInt).toArray();
+	}
+
+	private static double[] doubles(String values)
+	{
+		return Arrays.stream(values.split(",")).mapToDouble(Double::parseDouble).toArray();
+	}
+}
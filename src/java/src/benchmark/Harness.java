@@ -0,0 +1,175 @@
+package benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Harness
+{
+	public interface Operation
+	{
+		double run();
+	}
+
+	public static class Result
+	{
+		private String _name;
+		private Map<String, String> _params;
+		private double _mean;
+		private double _deviation;
+		private int _samples;
+		private long _operations;
+		private String _mode = "avgt";
+		private String _unit = "ns/op";
+
+		private Result(String name, Map<String, String> params, double[] samples, long operations)
+		{
+			_name = name;
+			_params = new LinkedHashMap<String, String>(params);
+			_samples = samples.length;
+			_operations = operations;
+
+			for(double sample: samples)
+				_mean += sample / samples.length;
+
+			for(double sample: samples)
+				_deviation += (sample - _mean) * (sample - _mean) / Math.max(1, samples.length - 1);
+
+			_deviation = Math.sqrt(_deviation);
+		}
+
+		public String getName()
+		{
+			return _name;
+		}
+
+		// Average time per operation, in nanoseconds
+		public double getMean()
+		{
+			return _mean;
+		}
+
+		public double getDeviation()
+		{
+			return _deviation;
+		}
+
+		public String getUnit()
+		{
+			return _unit;
+		}
+
+		@Override public String toString()
+		{
+			if( _operations == 0 )
+				return _name + " " + _params + " | " + _mean + " " + _unit;
+
+			return _name + " " + _params + " | " + String.format("%.1f", _mean) + " ns/op | +- " + String.format("%.1f", _deviation) + " | " + _samples + " x " + _operations + " ops";
+		}
+	}
+
+	// Results are accumulated here, so the JIT cannot discard the measured operations
+	private static volatile double _sink;
+
+	private int _warmup = 3;
+	private int _iterations = 5;
+	private double _iterationTime = 0.2;
+	private ArrayList<Result> _results = new ArrayList<Result>();
+
+	public Result measure(String name, Map<String, String> params, Operation operation)
+	{
+		long operations = 1;
+
+		// Warmup, doubling the operations per iteration until an iteration takes long enough
+		for(int i=0; i<_warmup; ++i)
+		{
+			while( time(operation, operations) < _iterationTime * 1e9 && operations < (1L << 40) )
+				operations *= 2;
+		}
+
+		double[] samples = new double[_iterations];
+		for(int i=0; i<_iterations; ++i)
+			samples[i] = time(operation, operations) / operations;
+
+		Result ret = new Result(name, params, samples, operations);
+		_results.add(ret);
+
+		return ret;
+	}
+
+	// A quantity other than a time, such as the objective reached by a solver, kept with the timings in the JSON output
+	public Result record(String name, Map<String, String> params, double value, String unit)
+	{
+		Result ret = new Result(name, params, new double[] { value }, 0);
+		ret._mode = "value";
+		ret._unit = unit;
+		_results.add(ret);
+
+		return ret;
+	}
+
+	private static double time(Operation operation, long operations)
+	{
+		double sink = 0;
+		long start = System.nanoTime();
+
+		for(long k=0; k<operations; ++k)
+			sink += operation.run();
+
+		long elapsed = System.nanoTime() - start;
+		_sink += sink;
+
+		return elapsed;
+	}
+
+	public void writeJson(String path) throws IOException
+	{
+		try (PrintWriter writer = new PrintWriter(new FileWriter(path)))
+		{
+			writer.println("[");
+
+			for(int i=0; i<_results.size(); ++i)
+			{
+				Result result = _results.get(i);
+
+				writer.print("  { \"benchmark\": \"" + result._name + "\", \"params\": {");
+
+				int k = 0;
+				for(Map.Entry<String, String> entry: result._params.entrySet())
+					writer.print((k++ > 0 ? ", " : " ") + "\"" + entry.getKey() + "\": \"" + entry.getValue() + "\"");
+
+				writer.print(" }, \"mode\": \"" + result._mode + "\", \"unit\": \"" + result._unit + "\"");
+				writer.print(", \"score\": " + result._mean);
+				writer.print(", \"error\": " + result._deviation);
+				writer.print(", \"samples\": " + result._samples);
+				writer.print(", \"operations\": " + result._operations + " }");
+				writer.println(i + 1 < _results.size() ? "," : "");
+			}
+
+			writer.println("]");
+		}
+	}
+
+	public ArrayList<Result> getResults()
+	{
+		return _results;
+	}
+
+	public void setWarmup(int iterations)
+	{
+		_warmup = iterations;
+	}
+
+	public void setIterations(int iterations)
+	{
+		_iterations = iterations;
+	}
+
+	public void setIterationTime(double seconds)
+	{
+		_iterationTime = seconds;
+	}
+}
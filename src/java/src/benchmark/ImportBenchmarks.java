@@ -0,0 +1,102 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import general.TextImporter;
+
+// Parsing throughput of the CSV and LIBSVM importers against file size
+// Usage: ImportBenchmarks [rows=10000,100000,1000000] [dimension=10] [out=imports.json]
+public class ImportBenchmarks
+{
+	public static void main(String[] args) throws IOException
+	{
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("rows", "10000,100000,1000000");
+		options.put("dimension", "10");
+		options.put("out", "imports.json");
+
+		for(String arg: args)
+			options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+
+		int dimension = Integer.parseInt(options.get("dimension"));
+
+		Harness harness = new Harness();
+		harness.setWarmup(1);
+		harness.setIterations(3);
+
+		for(int rows: Arrays.stream(options.get("rows").split(",")).mapToInt(Integer::parseInt).toArray())
+		{
+			File csv = File.createTempFile("import", ".csv");
+			File libsvm = File.createTempFile("import", ".libsvm");
+			csv.deleteOnExit();
+			libsvm.deleteOnExit();
+
+			generate(csv, libsvm, rows, dimension);
+
+			measure(harness, "TextImporter.readCsv", csv, rows, dimension, () -> new TextImporter().readCsv(csv.getPath()).getPoints());
+			measure(harness, "TextImporter.readLibsvm", libsvm, rows, dimension, () -> new TextImporter().readLibsvm(libsvm.getPath()).getPoints());
+		}
+
+		harness.writeJson(options.get("out"));
+	}
+
+	private interface Import
+	{
+		int run() throws IOException;
+	}
+
+	private static void measure(Harness harness, String name, File file, int rows, int dimension, Import operation)
+	{
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		params.put("rows", String.valueOf(rows));
+		params.put("dimension", String.valueOf(dimension));
+		params.put("bytes", String.valueOf(file.length()));
+
+		Harness.Result result = harness.measure(name, params, () ->
+		{
+			try
+			{
+				return operation.run();
+			}
+			catch(IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		});
+
+		System.out.println(result + " | " + String.format("%.1f", file.length() / result.getMean() * 1e3) + " MB/s");
+	}
+
+	private static void generate(File csv, File libsvm, int rows, int dimension) throws IOException
+	{
+		Random random = new Random(0);
+
+		try (PrintWriter csvWriter = new PrintWriter(csv); PrintWriter libsvmWriter = new PrintWriter(libsvm))
+		{
+			for(int i=0; i<rows; ++i)
+			{
+				int label = random.nextInt(2);
+				StringBuilder csvLine = new StringBuilder();
+				StringBuilder libsvmLine = new StringBuilder(label == 0 ? "-1" : "+1");
+
+				for(int t=0; t<dimension; ++t)
+				{
+					// Six decimals, as exported by our upstream tools; full-precision values take the slower exact path
+					String value = String.format(Locale.ROOT, "%.6f", random.nextGaussian());
+					csvLine.append(value).append(',');
+					libsvmLine.append(' ').append(t + 1).append(':').append(value);
+				}
+
+				csvWriter.println(csvLine.append(label));
+				libsvmWriter.println(libsvmLine);
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import general.Vectors;
+
+// Scalar against SIMD kernels on the same data; the SIMD rows are skipped when jdk.incubator.vector is not available
+// Usage: java --add-modules jdk.incubator.vector KernelBenchmarks [dimension=64,128,256] [centroids=16] [points=4096] [out=kernels.json]
+public class KernelBenchmarks
+{
+	public static void main(String[] args) throws IOException
+	{
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("dimension", "64,128,256");
+		options.put("centroids", "16");
+		options.put("points", "4096");
+		options.put("warmup", "3");
+		options.put("iterations", "5");
+		options.put("out", "kernels.json");
+
+		for(String arg: args)
+			options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+
+		int centroids = Integer.parseInt(options.get("centroids"));
+		int points = Integer.parseInt(options.get("points"));
+
+		Harness harness = new Harness();
+		harness.setWarmup(Integer.parseInt(options.get("warmup")));
+		harness.setIterations(Integer.parseInt(options.get("iterations")));
+
+		for(int dimension: Arrays.stream(options.get("dimension").split(",")).mapToInt(Integer::parseInt).toArray())
+		{
+			Random random = new Random(0);
+			double[] coordinates = random.doubles(points * dimension).toArray();
+			double[] others = random.doubles(centroids * dimension).toArray();
+			int[] indexes = new int[points];
+			for(int i=0; i<points; ++i)
+				indexes[i] = i;
+
+			// Narrowing four coordinates keeps about half of the points inside, so most checks scan every coordinate
+			double[] min = new double[dimension];
+			double[] max = new double[dimension];
+			Arrays.fill(max, 1);
+			for(int t=0; t<4; ++t)
+				min[t * dimension / 4] = 0.16;
+
+			double[] distances = new double[centroids];
+
+			for(boolean simd: new boolean[] { false, true })
+			{
+				if( Vectors.setSimd(simd) != simd )
+				{
+					System.out.println("SIMD kernels not available, run with --add-modules jdk.incubator.vector");
+					continue;
+				}
+
+				Map<String, String> params = new LinkedHashMap<String, String>();
+				params.put("dimension", String.valueOf(dimension));
+				params.put("centroids", String.valueOf(centroids));
+				params.put("points", String.valueOf(points));
+				params.put("kernels", simd ? "simd" : "scalar");
+
+				int[] next = new int[1];
+				report(harness.measure("Vectors.squaredDistance", params, () ->
+				{
+					next[0] = (next[0] + 1) % points;
+					return Vectors.squaredDistance(coordinates, next[0] * dimension, others, 0, dimension);
+				}));
+				report(harness.measure("Vectors.squaredDistances", params, () ->
+				{
+					next[0] = (next[0] + 1) % points;
+					Vectors.squaredDistances(coordinates, next[0] * dimension, others, centroids, dimension, distances);
+					return distances[0];
+				}));
+				report(harness.measure("Vectors.countInside", params, () -> Vectors.countInside(min, max, coordinates, indexes, 0, points, dimension)));
+
+				System.out.println("checksum " + params + " | " + checksum(coordinates, others, indexes, min, max, points, centroids, dimension));
+			}
+		}
+
+		Vectors.setSimd(false);
+		harness.writeJson(options.get("out"));
+	}
+
+	// Same results from both kernels, up to the rounding of the summation order
+	private static String checksum(double[] coordinates, double[] others, int[] indexes, double[] min, double[] max, int points, int centroids, int dimension)
+	{
+		double[] distances = new double[centroids];
+		double sum = 0;
+
+		for(int i=0; i<points; ++i)
+		{
+			Vectors.squaredDistances(coordinates, i * dimension, others, centroids, dimension, distances);
+			for(double distance: distances)
+				sum += distance;
+		}
+
+		return String.format("%.6f", sum) + " | " + Vectors.countInside(min, max, coordinates, indexes, 0, points, dimension) + " inside";
+	}
+
+	private static void report(Harness.Result result)
+	{
+		System.out.println(result);
+	}
+}
@@ -0,0 +1,205 @@
+package frontend;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import general.BinaryInstance;
+import general.Instance;
+import general.RandomInstance;
+import general.Solution;
+import general.TextImporter;
+import heuristic.Heuristic;
+
+// Runs the heuristic over a list of instance specs on a bounded worker pool, streaming one CSV row per instance
+// Spec lines:
+//   random <dimension> <points> <clusters> <dispersion> <seed>    (seed can be a range, as in 0-999)
+//   binary <path>
+//   csv <path> <label column>    (negative columns count from the end)
+//   libsvm <path>
+// Usage: BatchRunner <specs> <output.csv> [threads] [seconds per instance]
+// Runs that hit the iteration or time cap are written with status Timeout and their last solution
+public class BatchRunner
+{
+	private ArrayList<Supplier<Instance>> _instances;
+	private ArrayList<String> _names;
+	private PrintWriter _output;
+	private int _threads;
+
+	// Some starting centroids make the heuristic cycle, so every instance is capped
+	private int _maxIterations = 1000;
+	private double _timeLimit = 300;
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if( args.length < 2 )
+		{
+			System.out.println("Usage: BatchRunner <specs> <output.csv> [threads] [seconds per instance]");
+			return;
+		}
+
+		BatchRunner runner = new BatchRunner(args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+		if( args.length > 3 )
+			runner.setTimeLimit(Double.parseDouble(args[3]));
+
+		runner.readSpecs(args[0]);
+		runner.run(args[1]);
+	}
+
+	public BatchRunner(int threads)
+	{
+		_instances = new ArrayList<Supplier<Instance>>();
+		_names = new ArrayList<String>();
+		_threads = threads;
+	}
+
+	public void readSpecs(String path) throws IOException
+	{
+		try (BufferedReader reader = new BufferedReader(new FileReader(path)))
+		{
+			String line;
+			while( (line = reader.readLine()) != null )
+			{
+				line = line.trim();
+				if( line.length() > 0 && line.startsWith("#") == false )
+					addSpec(line);
+			}
+		}
+	}
+
+	public void addSpec(String spec)
+	{
+		String[] fields = spec.split("\\s+");
+
+		if( fields[0].equals("random") && fields.length == 6 )
+		{
+			int dimension = Integer.parseInt(fields[1]);
+			int points = Integer.parseInt(fields[2]);
+			int clusters = Integer.parseInt(fields[3]);
+			double dispersion = Double.parseDouble(fields[4]);
+
+			int from = Integer.parseInt(fields[5].contains("-") ? fields[5].substring(0, fields[5].indexOf('-')) : fields[5]);
+			int to = Integer.parseInt(fields[5].contains("-") ? fields[5].substring(fields[5].indexOf('-') + 1) : fields[5]);
+
+			// Instances are generated by the workers, so only the running ones are kept in memory
+			for(int seed=from; seed<=to; ++seed)
+			{
+				final int s = seed;
+				add("R(" + dimension + "," + points + "," + clusters + "," + dispersion + "," + s + ")", () -> RandomInstance.generate(dimension, points, clusters, dispersion, s));
+			}
+		}
+		else if( fields[0].equals("binary") && fields.length == 2 )
+		{
+			add(fields[1], () -> read(fields[0], fields[1], 0));
+		}
+		else if( fields[0].equals("csv") && fields.length == 3 )
+		{
+			add(fields[1], () -> read(fields[0], fields[1], Integer.parseInt(fields[2])));
+		}
+		else if( fields[0].equals("libsvm") && fields.length == 2 )
+		{
+			add(fields[1], () -> read(fields[0], fields[1], 0));
+		}
+		else
+		{
+			throw new RuntimeException("Invalid instance spec: " + spec);
+		}
+	}
+
+	private static Instance read(String format, String path, int labelColumn)
+	{
+		try
+		{
+			if( format.equals("binary") )
+				return BinaryInstance.read(path);
+			
+			TextImporter importer = new TextImporter();
+			importer.setLabelColumn(labelColumn);
+			
+			return format.equals("csv") ? importer.readCsv(path) : importer.readLibsvm(path);
+		}
+		catch(IOException e)
+		{
+			throw new RuntimeException("Cannot read instance " + path + ": " + e.getMessage());
+		}
+	}
+
+	public void add(String name, Supplier<Instance> instance)
+	{
+		_names.add(name);
+		_instances.add(instance);
+	}
+
+	public void run(String path) throws IOException, InterruptedException
+	{
+		_output = new PrintWriter(new FileWriter(path));
+		_output.println("index,instance,method,status,objective,time,iterations");
+		_output.flush();
+
+		ExecutorService executor = Executors.newFixedThreadPool(_threads);
+
+		for(int i=0; i<_instances.size(); ++i)
+		{
+			final int index = i;
+			executor.submit(() -> solve(index));
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+
+		_output.close();
+	}
+
+	private void solve(int index)
+	{
+		String row;
+
+		try
+		{
+			Instance instance = _instances.get(index).get();
+
+			// The pool already keeps every core busy
+			Heuristic heuristic = new Heuristic(instance);
+			heuristic.setVerbose(false);
+			heuristic.setParallel(false);
+			heuristic.setMaxIterations(_maxIterations);
+			heuristic.setDeadline(System.currentTimeMillis() + (long)(1000 * _timeLimit));
+
+			Solution solution = heuristic.run();
+			String status = heuristic.getStatus() == Heuristic.Status.Converged ? "Feasible" : "Timeout";
+			row = index + ",\"" + instance.getName() + "\",Heur," + status + "," + solution.misclassified(instance) + "," + String.format(Locale.ROOT, "%.3f", heuristic.getElapsedTime()) + "," + heuristic.getIterations();
+		}
+		catch(Exception e)
+		{
+			row = index + ",\"" + _names.get(index) + "\",Heur,Error,,,";
+			System.err.println(_names.get(index) + ": " + e);
+		}
+
+		write(row);
+	}
+
+	public void setMaxIterations(int maxIterations)
+	{
+		_maxIterations = maxIterations;
+	}
+
+	// Seconds per instance, counted from the start of its heuristic run
+	public void setTimeLimit(double seconds)
+	{
+		_timeLimit = seconds;
+	}
+
+	private synchronized void write(String row)
+	{
+		_output.println(row);
+		_output.flush();
+	}
+}
@@ -2,6 +2,7 @@ package frontend;
 
 import general.Instance;
 import general.RandomInstance;
+import general.Reduction;
 import general.Solution;
 import heuristic.Heuristic;
 import model.RectangularModel;
@@ -17,8 +18,13 @@ public class EntryPoint
 		Heuristic heuristic = new Heuristic(instance);
 		Solution solution1 = heuristic.run();
 
-		RectangularModel model = new RectangularModel(instance);
-		Solution solution2 = model.run();
+		Reduction reduction = new Reduction(instance);
+		Instance reduced = reduction.reduce();
+
+		RectangularModel model = new RectangularModel(reduced);
+		model.setWeights(reduction.getWeights());
+		model.setInitialSolution(reduction.restrict(solution1));
+		Solution solution2 = reduction.expand(model.run());
 		
 		new Viewer(instance, solution1, heuristic.getCentroids(), "Heuristic solution");
 		new Viewer(instance, solution2, "Model solution");
@@ -0,0 +1,304 @@
+package general;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Binary instance format, little endian:
+//   header:  magic, version, name length, name (UTF-8), classes, clusters of each class, dimension, points (long), padding to 8 bytes
+//   blocks:  coordinates (points x dimension doubles, row-major), class IDs (points ints), point IDs (points ints)
+// The file size must match the header exactly. The file is only mapped for reading: its blocks are copied into the
+// heap arrays of a single PointStore, which the kernels index directly, so the whole instance must fit in the heap and
+// points x dimension must stay below the 2^31 - 8 values of a Java array (16 GB of coordinates), even though the header
+// count is a long
+public class BinaryInstance
+{
+	private static final int _magic = 0x49434931;
+	private static final int _version = 1;
+
+	// Largest mapped region, a multiple of 8 so that no double crosses two regions
+	private static final long _region = 1L << 30;
+
+	public static Instance read(String path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+		{
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 16));
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			String name;
+			int classes;
+			int[] clusters;
+			int dimension;
+			long points;
+
+			try
+			{
+				if( header.getInt() != _magic )
+					throw new RuntimeException("Not a binary instance file: " + path);
+
+				if( header.getInt() != _version )
+					throw new RuntimeException("Unsupported binary instance version: " + path);
+
+				int length = header.getInt();
+				if( length < 0 || length > header.remaining() )
+					throw new RuntimeException("Corrupt binary instance header, name length " + length + ": " + path);
+
+				byte[] bytes = new byte[length];
+				header.get(bytes);
+				name = new String(bytes, StandardCharsets.UTF_8);
+
+				classes = header.getInt();
+				if( classes <= 0 || classes > header.remaining() / 4 )
+					throw new RuntimeException("Corrupt binary instance header, " + classes + " classes: " + path);
+
+				clusters = new int[classes];
+				for(int i=0; i<classes; ++i)
+					clusters[i] = header.getInt();
+
+				dimension = header.getInt();
+				points = header.getLong();
+			}
+			catch(BufferUnderflowException e)
+			{
+				throw new RuntimeException("Truncated binary instance header: " + path);
+			}
+
+			if( dimension <= 0 || points < 0 )
+				throw new RuntimeException("Corrupt binary instance header, " + points + " points of dimension " + dimension + ": " + path);
+
+			if( points > (Integer.MAX_VALUE - 8) / dimension )
+				throw new RuntimeException("Instance too large for a single point store: " + points + " points of dimension " + dimension
+						+ " exceed the limit of 2^31 - 8 coordinates: " + path);
+
+			int size = (int)points;
+			long position = align(header.position());
+
+			long expected = position + 8L * size * dimension + 8L * size;
+			if( channel.size() != expected )
+				throw new RuntimeException("Binary instance file has " + channel.size() + " bytes, the header of " + size + " points of dimension "
+						+ dimension + " implies " + expected + ": " + path);
+
+			// One bulk transfer per block straight into the store arrays, without intermediate objects
+			double[] coordinates = new double[size * dimension];
+			int[] classIDs = new int[size];
+			int[] ids = new int[size];
+
+			position = readDoubles(channel, position, coordinates);
+			position = readInts(channel, position, classIDs);
+			position = readInts(channel, position, ids);
+
+			Instance ret = new Instance(name, classes, 1, new PointStore(dimension, coordinates, classIDs, ids, size));
+
+			for(int i=0; i<classes; ++i)
+				ret.setClusters(i, clusters[i]);
+
+			return ret;
+		}
+	}
+
+	private static long readDoubles(FileChannel channel, long position, double[] target) throws IOException
+	{
+		for(int from=0; from<target.length; )
+		{
+			int length = (int)Math.min(target.length - from, _region / 8);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(target, from, length);
+
+			from += length;
+			position += 8L * length;
+		}
+
+		return position;
+	}
+
+	private static long readInts(FileChannel channel, long position, int[] target) throws IOException
+	{
+		for(int from=0; from<target.length; )
+		{
+			int length = (int)Math.min(target.length - from, _region / 4);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(target, from, length);
+
+			from += length;
+			position += 4L * length;
+		}
+
+		return position;
+	}
+
+	private static long align(long position)
+	{
+		return (position + 7) / 8 * 8;
+	}
+
+	public static void write(Instance instance, String path) throws IOException
+	{
+		int[] clusters = new int[instance.getClasses()];
+		for(int i=0; i<clusters.length; ++i)
+			clusters[i] = instance.getClusters(i);
+
+		PointStore store = instance.getStore();
+
+		try (Writer writer = new Writer(path, instance.getName(), clusters, instance.getDimension()))
+		{
+			for(int i=0; i<store.size(); ++i)
+				writer.add(store.getId(i), store.getClassID(i), store.getCoordinates(), store.offset(i));
+		}
+	}
+
+	// Streams points to a file, the point count is patched into the header on close(). Class and point IDs follow the
+	// coordinate block, so they are spooled to temporary files next to the output and appended on close()
+	public static class Writer implements AutoCloseable
+	{
+		private FileChannel _channel;
+		private ByteBuffer _buffer;
+		private int _dimension;
+		private long _points;
+		private long _countPosition;
+		private Spool _classIDs;
+		private Spool _ids;
+
+		public Writer(String path, String name, int[] clusters, int dimension) throws IOException
+		{
+			Path target = Paths.get(path).toAbsolutePath();
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+			// Large enough for the header and for one point, however long they are
+			long header = align(28L + bytes.length + 4L * clusters.length);
+			long capacity = Math.max(1 << 20, Math.max(header, 8L * dimension));
+
+			if( capacity > Integer.MAX_VALUE - 8 )
+				throw new RuntimeException("Points of dimension " + dimension + " do not fit in a write buffer: " + path);
+
+			_channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			_buffer = ByteBuffer.allocateDirect((int)capacity).order(ByteOrder.LITTLE_ENDIAN);
+			_dimension = dimension;
+			_classIDs = new Spool(target);
+			_ids = new Spool(target);
+
+			_buffer.putInt(_magic);
+			_buffer.putInt(_version);
+			_buffer.putInt(bytes.length);
+			_buffer.put(bytes);
+			_buffer.putInt(clusters.length);
+
+			for(int value: clusters)
+				_buffer.putInt(value);
+
+			_buffer.putInt(dimension);
+			_countPosition = _buffer.position();
+			_buffer.putLong(0);
+
+			while( _buffer.position() % 8 != 0 )
+				_buffer.put((byte)0);
+		}
+
+		public void add(int id, int classID, double[] values, int from) throws IOException
+		{
+			if( _buffer.remaining() < 8 * _dimension )
+				flush();
+
+			for(int t=0; t<_dimension; ++t)
+				_buffer.putDouble(values[from + t]);
+
+			_classIDs.add(classID);
+			_ids.add(id);
+			_points++;
+		}
+
+		public void add(Point point) throws IOException
+		{
+			if( point.getDimension() != _dimension )
+				throw new RuntimeException("Input points have different dimensions!");
+
+			add(point.getId(), point.getClassID(), point.getValues(), 0);
+		}
+
+		private void flush() throws IOException
+		{
+			_buffer.flip();
+			while( _buffer.hasRemaining() )
+				_channel.write(_buffer);
+
+			_buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				flush();
+
+				_classIDs.appendTo(_channel);
+				_ids.appendTo(_channel);
+
+				ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				count.putLong(_points).flip();
+				_channel.write(count, _countPosition);
+			}
+			finally
+			{
+				_classIDs.close();
+				_ids.close();
+				_channel.close();
+			}
+		}
+	}
+
+	// Buffered temporary file of ints, deleted when closed
+	private static class Spool
+	{
+		private Path _path;
+		private FileChannel _channel;
+		private ByteBuffer _buffer;
+
+		private Spool(Path target) throws IOException
+		{
+			_path = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+			_channel = FileChannel.open(_path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+			_buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		private void add(int value) throws IOException
+		{
+			if( _buffer.remaining() < 4 )
+				flush();
+
+			_buffer.putInt(value);
+		}
+
+		private void flush() throws IOException
+		{
+			_buffer.flip();
+			while( _buffer.hasRemaining() )
+				_channel.write(_buffer);
+
+			_buffer.clear();
+		}
+
+		private void appendTo(FileChannel target) throws IOException
+		{
+			flush();
+
+			long size = _channel.size();
+			for(long position=0; position<size; )
+				position += _channel.transferTo(position, size - position, target);
+		}
+
+		private void close() throws IOException
+		{
+			_channel.close();
+			Files.deleteIfExists(_path);
+		}
+	}
+}
@@ -1,30 +1,91 @@
 package general;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+// Members are kept as a bit set over the point indexes of one instance, points are only materialized by the set views
 public class Cluster
 {
-	private Set<Point> _points;
+	private Instance _instance;
+	private BitSet _members;
+	private int _size;
+	private Members _view;
+	// Extent of the members
 	private double[] _min;
 	private double[] _max;
+	// Box returned by getMin/getMax once setMin/setMax was called, null before: the coordinates set are kept when the
+	// extent is recomputed after a removal, the others follow the extent
+	private double[] _boxMin;
+	private double[] _boxMax;
+	private boolean[] _fixedMin;
+	private boolean[] _fixedMax;
+	// Per coordinate sums of the points, so the centroid never needs a pass over the set
+	private double[] _sum;
+	private boolean _dirty = false;
 	private int _class = -1;
 	
 	public Cluster()
 	{
-		_points = new HashSet<Point>();
+		_members = new BitSet();
+	}
+	
+	// Live read-only view of the members
+	private class Members extends AbstractSet<Point>
+	{
+		@Override
+		public Iterator<Point> iterator()
+		{
+			return new Iterator<Point>()
+			{
+				private int _next = _members.nextSetBit(0);
+				
+				@Override
+				public boolean hasNext()
+				{
+					return _next >= 0;
+				}
+				
+				@Override
+				public Point next()
+				{
+					if( _next < 0 )
+						throw new NoSuchElementException();
+					
+					Point ret = _instance.getPoint(_next);
+					_next = _members.nextSetBit(_next + 1);
+					return ret;
+				}
+			};
+		}
+		
+		@Override
+		public int size()
+		{
+			return _size;
+		}
+		
+		@Override
+		public boolean contains(Object object)
+		{
+			return object instanceof Point && Cluster.this.contains((Point)object);
+		}
 	}
 
 	public static Cluster fromArray(Instance instance, int... indexes)
 	{
 		Cluster ret = new Cluster();
 		
-		for(Integer i: indexes)
-			ret.add(instance.getPoint(i));
+		for(int i: indexes)
+			ret.add(instance, i);
 		
 		return ret;
 	}
@@ -34,7 +95,7 @@ public class Cluster
 		Cluster ret = new Cluster();
 		
 		for(Integer i: indexes)
-			ret.add(instance.getPoint(i));
+			ret.add(instance, i);
 		
 		return ret;
 	}
@@ -43,8 +104,8 @@ public class Cluster
 	{
 		Cluster ret = new Cluster();
 		
-		for(Point point: instance.stream(classID).collect(Collectors.toList()))
-			ret.add(point);
+		for(int i=0; i<instance.getPoints(); ++i) if( instance.getStore().getClassID(i) == classID )
+			ret.add(instance, i);
 		
 		return ret;
 	}
@@ -56,136 +117,380 @@ public class Cluster
 		return ret;
 	}
 
+	// Members are indexes of one instance, so only points of an instance, as returned by Instance.getPoint(), can be added;
+	// a point built on its own has no index and is rejected
 	public void add(Point point)
 	{
-		if( _points.size() == 0 )
+		if( point.getInstance() == null )
+			throw new RuntimeException("Point " + point + " does not belong to an instance!");
+		
+		add(point.getInstance(), point.getIndex());
+	}
+	
+	public void add(Instance instance, int index)
+	{
+		PointStore store = instance.getStore();
+		double[] values = store.getCoordinates();
+		int offset = store.offset(index);
+		int d = store.getDimension();
+		
+		if( _size == 0 )
 		{
-			_min = new double[point.getDimension()];
-			_max = new double[point.getDimension()];
-			_class = point.getClassID();
-			
-			for(int t=0; t<point.getDimension(); ++t)
-				_min[t] = _max[t] = point.get(t); 
+			_instance = instance;
+			_min = Arrays.copyOfRange(values, offset, offset + d);
+			_max = Arrays.copyOfRange(values, offset, offset + d);
+			_sum = new double[d];
+			_class = store.getClassID(index);
+		}
+		else if( _instance != instance )
+		{
+			throw new RuntimeException("Point of another instance added to the cluster!");
 		}
-		else if( this.getClassID() != point.getClassID() )
+		else if( this.getClassID() != store.getClassID(index) )
 		{
-			throw new RuntimeException("Point of class " + point.getClassID() + " added to class " + this.getClassID() + " cluster!");
+			throw new RuntimeException("Point of class " + store.getClassID(index) + " added to class " + this.getClassID() + " cluster!");
 		}
 		else
 		{
-			for(int t=0; t<point.getDimension(); ++t)
-			{
-				_min[t] = Math.min(_min[t], point.get(t));
-				_max[t] = Math.max(_max[t], point.get(t));
-			}
+			Vectors.min(_min, values, offset, d);
+			Vectors.max(_max, values, offset, d);
+			
+			if( _boxMin != null )
+				Vectors.min(_boxMin, values, offset, d);
+			
+			if( _boxMax != null )
+				Vectors.max(_boxMax, values, offset, d);
 		}
 
-		_points.add(point);
+		if( _members.get(index) == false )
+		{
+			_members.set(index);
+			_size++;
+			Vectors.axpy(1, values, offset, _sum, 0, d);
+		}
 	}
 	
 	public void remove(Point point)
 	{
-		_points.remove(point);
+		if( point.getInstance() != null )
+			remove(point.getInstance(), point.getIndex());
+	}
+	
+	public void remove(Instance instance, int index)
+	{
+		if( contains(instance, index) == false )
+			return;
+		
+		_members.clear(index);
+		_size--;
 		
-		if( _points.size() == 0 )
+		if( _size == 0 )
 		{
-			_min = null;
-			_max = null;
-			_class = -1;
+			clear();
+			return;
 		}
+		
+		PointStore store = _instance.getStore();
+		double[] values = store.getCoordinates();
+		int offset = store.offset(index);
+		
+		Vectors.axpy(-1, values, offset, _sum, 0, _sum.length);
+		
+		// Only a point lying on the border can shrink the box
+		for(int t=0; t<_min.length && _dirty == false; ++t)
+			_dirty = values[offset + t] == _min[t] || values[offset + t] == _max[t];
 	}
 	
-	public Set<Point> asSet()
+	private void refreshBounds()
+	{
+		if( _dirty == false )
+			return;
+		
+		double[] min = new double[_min.length];
+		double[] max = new double[_max.length];
+		Arrays.fill(min, Double.POSITIVE_INFINITY);
+		Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		
+		PointStore store = _instance.getStore();
+		for(int i=_members.nextSetBit(0); i>=0; i=_members.nextSetBit(i + 1))
+		{
+			Vectors.min(min, store.getCoordinates(), store.offset(i), min.length);
+			Vectors.max(max, store.getCoordinates(), store.offset(i), max.length);
+		}
+		
+		_min = min;
+		_max = max;
+		
+		for(int t=0; t<_min.length; ++t)
+		{
+			if( _boxMin != null && _fixedMin[t] == false )
+				_boxMin[t] = min[t];
+			
+			if( _boxMax != null && _fixedMax[t] == false )
+				_boxMax[t] = max[t];
+		}
+		
+		_dirty = false;
+	}
+	
+	public void clear()
+	{
+		_instance = null;
+		_members.clear();
+		_size = 0;
+		_min = null;
+		_max = null;
+		_boxMin = null;
+		_boxMax = null;
+		_fixedMin = null;
+		_fixedMax = null;
+		_sum = null;
+		_dirty = false;
+		_class = -1;
+	}
+	
+	// Adds the points of another cluster of the same class, combining the accumulators instead of walking the points
+	// when the two clusters are disjoint, as for partial clusters built on separate blocks of points
+	public void merge(Cluster that)
 	{
-		return _points;
+		if( that._size == 0 )
+			return;
+		
+		if( _size == 0 )
+		{
+			_instance = that._instance;
+			_members.or(that._members);
+			_size = that._size;
+			_min = that._min.clone();
+			_max = that._max.clone();
+			_boxMin = that._boxMin == null ? null : that._boxMin.clone();
+			_boxMax = that._boxMax == null ? null : that._boxMax.clone();
+			_fixedMin = that._fixedMin == null ? null : that._fixedMin.clone();
+			_fixedMax = that._fixedMax == null ? null : that._fixedMax.clone();
+			_sum = that._sum.clone();
+			_dirty = that._dirty;
+			_class = that._class;
+			return;
+		}
+		
+		if( _instance != that._instance )
+			throw new RuntimeException("Cluster of another instance merged into the cluster!");
+		
+		if( this.getClassID() != that.getClassID() )
+			throw new RuntimeException("Cluster of class " + that.getClassID() + " merged into class " + this.getClassID() + " cluster!");
+		
+		// Word-parallel union of the members
+		int size = _size;
+		_members.or(that._members);
+		_size = _members.cardinality();
+		
+		refreshBounds();
+		that.refreshBounds();
+		
+		// Either box is its extent where nothing was set
+		if( _boxMin != null || that._boxMin != null )
+		{
+			_boxMin = box(_boxMin, _min, that._boxMin, that._min, true);
+			_fixedMin = fixed(_fixedMin, that._fixedMin);
+		}
+		
+		if( _boxMax != null || that._boxMax != null )
+		{
+			_boxMax = box(_boxMax, _max, that._boxMax, that._max, false);
+			_fixedMax = fixed(_fixedMax, that._fixedMax);
+		}
+		
+		Vectors.min(_min, that._min, 0, _min.length);
+		Vectors.max(_max, that._max, 0, _max.length);
+		Vectors.axpy(1, that._sum, 0, _sum, 0, _sum.length);
+		
+		// Shared points were counted twice
+		if( _size != size + that._size )
+			refreshSums();
 	}
 	
-	public ArrayList<Point> asArrayList()
+	private static double[] box(double[] box, double[] extent, double[] thatBox, double[] thatExtent, boolean lower)
 	{
-		ArrayList<Point> ret = new ArrayList<Point>(_points.size());
+		double[] ret = box != null ? box : extent.clone();
+		double[] other = thatBox != null ? thatBox : thatExtent;
 		
-		for(Point point: _points)
-			ret.add(point);
+		if( lower )
+			Vectors.min(ret, other, 0, ret.length);
+		else
+			Vectors.max(ret, other, 0, ret.length);
 		
 		return ret;
 	}
 	
+	private static boolean[] fixed(boolean[] a, boolean[] b)
+	{
+		if( a == null || b == null )
+			return a == null ? (b == null ? null : b.clone()) : a;
+		
+		for(int t=0; t<a.length; ++t)
+			a[t] |= b[t];
+		
+		return a;
+	}
+	
+	private void refreshSums()
+	{
+		Arrays.fill(_sum, 0);
+		
+		PointStore store = _instance.getStore();
+		for(int i=_members.nextSetBit(0); i>=0; i=_members.nextSetBit(i + 1))
+			Vectors.axpy(1, store.getCoordinates(), store.offset(i), _sum, 0, _sum.length);
+	}
+	
+	// Live read-only view, points are materialized while iterating
+	public Set<Point> asSet()
+	{
+		if( _view == null )
+			_view = new Members();
+		
+		return _view;
+	}
+	
+	public ArrayList<Point> asArrayList()
+	{
+		return new ArrayList<Point>(asSet());
+	}
+	
+	// Indexes of the members in the instance, in increasing order
+	public int[] getIndexes()
+	{
+		return _members.stream().toArray();
+	}
+	
+	// Instance of the members, null for an empty cluster
+	public Instance getInstance()
+	{
+		return _instance;
+	}
+	
 	public int size()
 	{
-		return _points.size();
+		return _size;
 	}
 	
 	public boolean contains(Point point)
 	{
-		return _points.contains(point);
+		return point.getInstance() != null && contains(point.getInstance(), point.getIndex());
 	}
 	
+	public boolean contains(Instance instance, int index)
+	{
+		return _instance == instance && _members.get(index);
+	}
+	
+	// Moves a side of the box returned by getMin/getMax, until the cluster is cleared; added points may still extend it.
+	// The extent given by min/max, and used by covers and the misclassification counts, is left alone
 	public void setMin(int coordinate, double value)
 	{
-		_min[coordinate] = value;
+		refreshBounds();
+		
+		if( _boxMin == null )
+		{
+			_boxMin = _min.clone();
+			_fixedMin = new boolean[_min.length];
+		}
+		
+		_boxMin[coordinate] = value;
+		_fixedMin[coordinate] = true;
 	}
 	
 	public void setMax(int coordinate, double value)
 	{
-		_max[coordinate] = value;
+		refreshBounds();
+		
+		if( _boxMax == null )
+		{
+			_boxMax = _max.clone();
+			_fixedMax = new boolean[_max.length];
+		}
+		
+		_boxMax[coordinate] = value;
+		_fixedMax[coordinate] = true;
 	}
 
 	public double getMin(int coordinate)
 	{
-		return _min[coordinate];
+		refreshBounds();
+		return _boxMin != null ? _boxMin[coordinate] : _min[coordinate];
 	}
 	
 	public double getMax(int coordinate)
 	{
-		return _max[coordinate];
+		refreshBounds();
+		return _boxMax != null ? _boxMax[coordinate] : _max[coordinate];
 	}
 	
+	// Extent of the members, 0 for an empty cluster
 	public double max(int dimension)
 	{
-		return _points.stream().mapToDouble(p -> p.get(dimension)).max().orElse(0);
+		if( _size == 0 )
+			return 0;
+		
+		refreshBounds();
+		return _max[dimension];
 	}
 	
 	public double min(int dimension)
 	{
-		return _points.stream().mapToDouble(p -> p.get(dimension)).min().orElse(0);
+		if( _size == 0 )
+			return 0;
+		
+		refreshBounds();
+		return _min[dimension];
 	}
 	
 	public Point centroid()
 	{
-		Point ret = null;
-		
-		for(Point point: _points)
-		{
-			if (ret == null)
-				ret = point.clone();
-			else
-				ret.sum(point);
-		}
+		if( _size == 0 )
+			return null;
 		
-		if (_points.size() > 0)
-			ret.divide(_points.size());
+		Point ret = new Point(-1, _class, _sum.length);
+		for(int t=0; t<_sum.length; ++t)
+			ret.set(t, _sum[t] / _size);
 		
 		return ret;
 	}
 	
+	// Writes the centroid into the given array, without allocating; false and the array untouched for an empty cluster
+	public boolean centroid(double[] target)
+	{
+		if( _size == 0 )
+			return false;
+		
+		for(int t=0; t<_sum.length; ++t)
+			target[t] = _sum[t] / _size;
+		
+		return true;
+	}
+	
 	public double totalDistanceToCentroid()
 	{
-		if( _points.size() == 0 )
+		if( _size == 0 )
 			return 0;
 		
-		Point c = this.centroid();
-		return _points.stream().mapToDouble(p -> p.distance(c)).sum();
+		double[] c = new double[_sum.length];
+		centroid(c);
+		
+		PointStore store = _instance.getStore();
+		double ret = 0;
+		for(int i=_members.nextSetBit(0); i>=0; i=_members.nextSetBit(i + 1))
+			ret += Vectors.distance(store.getCoordinates(), store.offset(i), c, 0, c.length);
+		
+		return ret;
 	}
 
 	public double span()
 	{
-		if( _points.size() == 0 )
+		if( _size == 0 )
 			return 0;
 		
-		int dimension = _points.iterator().next().getDimension();
-
 		double ret = 0;
-		for(int t=0; t<dimension; ++t)
+		for(int t=0; t<_min.length; ++t)
 			ret += span(t);
 		
 		return ret;
@@ -198,7 +503,7 @@ public class Cluster
 	
 	public double diagonal()
 	{
-		if( _points.size() == 0 )
+		if( _size == 0 )
 			return 0;
 		
 		return lowerCorner().distance(upperCorner());
@@ -206,7 +511,7 @@ public class Cluster
 	
 	public Point diagonalDirection()
 	{
-		if( _points.size() == 0 )
+		if( _size == 0 )
 			return null;
 		
 		Point ret = upperCorner();
@@ -218,37 +523,25 @@ public class Cluster
 	
 	public Point lowerCorner()
 	{
-		Point ret = null;
-		for(Point p: _points)
-		{
-			if( ret == null )
-				ret = p.clone();
-			
-			for(int t=0; t<p.getDimension(); ++t)
-				ret.set(t, Math.min(ret.get(t), p.get(t)));
-		}
+		if( _size == 0 )
+			return null;
 		
-		return ret;
+		refreshBounds();
+		return Point.fromVector(-1, _class, _min);
 	}
 	
 	public Point upperCorner()
 	{
-		Point ret = null;
-		for(Point p: _points)
-		{
-			if( ret == null )
-				ret = p.clone();
-			
-			for(int t=0; t<p.getDimension(); ++t)
-				ret.set(t, Math.max(ret.get(t), p.get(t)));
-		}
+		if( _size == 0 )
+			return null;
 		
-		return ret;
+		refreshBounds();
+		return Point.fromVector(-2, _class, _max);
 	}
 	
 	public Set<Point> getPoints()
 	{
-		return _points;
+		return asSet();
 	}
 	
 	public int getClassID()
@@ -259,7 +552,7 @@ public class Cluster
 	@Override
 	public int hashCode()
 	{
-		return Objects.hash(_points);
+		return Objects.hash(_members);
 	}
 
 	@Override
@@ -272,49 +565,75 @@ public class Cluster
 		if (getClass() != obj.getClass())
 			return false;
 		Cluster other = (Cluster) obj;
-		return Objects.equals(_points, other._points);
+		return _instance == other._instance && Objects.equals(_members, other._members);
 	}
 
 	@Override public String toString()
 	{
 		String ret = "";
-		for(Point point: _points)
-			ret += (ret.length() > 0 ? ", " : "") + point.getId();
+		for(int i=_members.nextSetBit(0); i>=0; i=_members.nextSetBit(i + 1))
+			ret += (ret.length() > 0 ? ", " : "") + _instance.getStore().getId(i);
 		
 		return "{" + ret + "}";
 	}
 
+	// An empty cluster has no box and covers nothing
 	public boolean covers(Point p)
 	{
-		boolean covered = true;
-		for (int t = 0; t < p.getDimension(); ++t)
-		{
-			if (this.min(t) > p.get(t) || this.max(t) < p.get(t)) // Out of the box!
-			{
-				covered = false;
-				break;
-			}
-		}
+		if( _size == 0 )
+			return false;
 		
-		return covered;
+		refreshBounds();
+		return Vectors.inside(_min, _max, p.getValues(), 0, p.getDimension());
 	}
 
 	public Cluster union(Cluster that)
 	{
 		Cluster ret = new Cluster();
-		
-		for(Point point: this.getPoints())
-			ret.add(point);
-
-		for(Point point: that.getPoints())
-			ret.add(point);
+		ret.merge(this);
+		ret.merge(that);
 		
 		return ret;
 	}
 	
+	public boolean covers(PointStore store, int index)
+	{
+		if( _size == 0 )
+			return false;
+		
+		refreshBounds();
+		return Vectors.inside(_min, _max, store.getCoordinates(), store.offset(index), store.getDimension());
+	}
+	
 	public List<Point> misclassified(Instance instance)
 	{
-		return instance.stream().filter(p -> p.getClassID() != this.getClassID() && this.covers(p)).collect(Collectors.toList());
+		return Arrays.stream(misclassifiedIndexes(instance)).mapToObj(i -> instance.getPoint(i)).collect(Collectors.toList());
+	}
+	
+	// Sorted indexes of the points of other classes inside the box
+	public int[] misclassifiedIndexes(Instance instance)
+	{
+		if( _size == 0 )
+			return new int[0];
+		
+		refreshBounds();
+		
+		return IntStream.range(0, instance.getClasses()).filter(c -> c != this.getClassID())
+				.flatMap(c -> Arrays.stream(instance.getIndex(c).query(_min, _max))).sorted().toArray();
+	}
+	
+	public int countMisclassified(Instance instance)
+	{
+		if( _size == 0 )
+			return 0;
+		
+		refreshBounds();
+		
+		int ret = 0;
+		for(int c=0; c<instance.getClasses(); ++c) if( c != this.getClassID() )
+			ret += instance.getIndex(c).count(_min, _max);
+		
+		return ret;
 	}
 	
 	public double distanceToBorder(Point point)
@@ -322,11 +641,22 @@ public class Cluster
 		if( point == null )
 			return 0;
 		
+		return distanceToBorder(point.getValues(), 0);
+	}
+	
+	public double distanceToBorder(double[] values, int offset)
+	{
+		refreshBounds();
+		
+		// Measured to the box, as getMin/getMax give it
+		double[] min = _boxMin != null ? _boxMin : _min;
+		double[] max = _boxMax != null ? _boxMax : _max;
+		
 		double ret = Double.POSITIVE_INFINITY;
-		for(int t=0; t<point.getDimension(); ++t)
+		for(int t=0; t<min.length; ++t)
 		{
-			ret = Math.min(ret, Math.abs(point.get(t) - _min[t]));
-			ret = Math.min(ret, Math.abs(point.get(t) - _max[t]));
+			ret = Math.min(ret, Math.abs(values[offset + t] - min[t]));
+			ret = Math.min(ret, Math.abs(values[offset + t] - max[t]));
 		}
 		
 		return ret;
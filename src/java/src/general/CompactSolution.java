@@ -0,0 +1,337 @@
+package general;
+
+import java.util.Arrays;
+
+// Solution kept as the cluster of each point, with the box and the number of covered foreign points of each cluster,
+// so the objective change of moving or swapping points is evaluated without rebuilding the clusters.
+// A box only has to be rescanned when a point on its border leaves it, otherwise a move costs O(d) plus the box
+// counts on the k-d trees of the foreign classes. Not thread safe, evaluations share scratch arrays.
+public class CompactSolution
+{
+	private Instance _instance;
+	private PointStore _store;
+	private int _dimension;
+
+	// Cluster of each point, or -1 for points outside every cluster
+	private int[] _clusterOf;
+
+	// Members of each cluster in no particular order, with the position of each point inside its list
+	private int[][] _members;
+	private int[] _size;
+	private int[] _position;
+
+	// Class of each cluster, -1 while it is empty, and its box in flat arrays
+	private int[] _class;
+	private double[] _min;
+	private double[] _max;
+
+	// Foreign points covered by each box, their sum is the objective
+	private int[] _covered;
+	private int _objective;
+
+	private double[] _minA;
+	private double[] _maxA;
+	private double[] _minB;
+	private double[] _maxB;
+
+	public CompactSolution(Instance instance, int clusters)
+	{
+		_instance = instance;
+		_store = instance.getStore();
+		_dimension = _store.getDimension();
+
+		_clusterOf = new int[instance.getPoints()];
+		Arrays.fill(_clusterOf, -1);
+		_position = new int[instance.getPoints()];
+
+		_members = new int[clusters][];
+		for(int j=0; j<clusters; ++j)
+			_members[j] = new int[4];
+
+		_size = new int[clusters];
+		_class = new int[clusters];
+		Arrays.fill(_class, -1);
+		_min = new double[clusters * _dimension];
+		_max = new double[clusters * _dimension];
+		_covered = new int[clusters];
+
+		_minA = new double[_dimension];
+		_maxA = new double[_dimension];
+		_minB = new double[_dimension];
+		_maxB = new double[_dimension];
+	}
+
+	public static CompactSolution fromSolution(Instance instance, Solution solution)
+	{
+		CompactSolution ret = new CompactSolution(instance, solution.size());
+
+		for(int j=0; j<solution.size(); ++j)
+		{
+			Cluster cluster = solution.getCluster(j);
+
+			if( cluster.size() > 0 && cluster.getInstance() != instance )
+				throw new RuntimeException("Cluster " + j + " does not belong to the instance!");
+
+			for(int i: cluster.getIndexes())
+			{
+				if( ret._clusterOf[i] != -1 )
+					throw new RuntimeException("Point " + i + " belongs to clusters " + ret._clusterOf[i] + " and " + j + "!");
+
+				ret.move(i, j);
+			}
+		}
+
+		return ret;
+	}
+
+	public Solution toSolution()
+	{
+		Solution ret = Solution.withEmptyClusters(_instance, _members.length);
+
+		for(int i=0; i<_clusterOf.length; ++i) if( _clusterOf[i] != -1 )
+			ret.getCluster(_clusterOf[i]).add(_instance, i);
+
+		return ret;
+	}
+
+	// Objective change of moving point i to cluster j, or out of every cluster with j = -1
+	public int deltaMove(int i, int j)
+	{
+		int from = _clusterOf[i];
+		if( from == j )
+			return 0;
+
+		check(i, j, -1);
+
+		int ret = 0;
+		if( from != -1 )
+			ret += coverage(_class[from], box(from, i, -1, _minA, _maxA), _minA, _maxA) - _covered[from];
+		if( j != -1 )
+			ret += coverage(_store.getClassID(i), box(j, -1, i, _minB, _maxB), _minB, _maxB) - _covered[j];
+
+		return ret;
+	}
+
+	public void move(int i, int j)
+	{
+		int from = _clusterOf[i];
+		if( from == j )
+			return;
+
+		check(i, j, -1);
+
+		if( from != -1 )
+		{
+			boolean empty = box(from, i, -1, _minA, _maxA) == false;
+			removeMember(from, i);
+			update(from, empty, _minA, _maxA);
+		}
+
+		if( j != -1 )
+		{
+			box(j, -1, i, _minB, _maxB);
+			addMember(j, i);
+			update(j, false, _minB, _maxB);
+		}
+	}
+
+	// Objective change of exchanging the clusters of points i and k
+	public int deltaSwap(int i, int k)
+	{
+		int a = _clusterOf[i];
+		int b = _clusterOf[k];
+		if( a == b )
+			return 0;
+
+		check(i, b, k);
+		check(k, a, i);
+
+		int ret = 0;
+		if( a != -1 )
+			ret += coverage(_store.getClassID(k), box(a, i, k, _minA, _maxA), _minA, _maxA) - _covered[a];
+		if( b != -1 )
+			ret += coverage(_store.getClassID(i), box(b, k, i, _minB, _maxB), _minB, _maxB) - _covered[b];
+
+		return ret;
+	}
+
+	public void swap(int i, int k)
+	{
+		int a = _clusterOf[i];
+		int b = _clusterOf[k];
+		if( a == b )
+			return;
+
+		check(i, b, k);
+		check(k, a, i);
+
+		boolean emptyA = a != -1 && box(a, i, k, _minA, _maxA) == false;
+		boolean emptyB = b != -1 && box(b, k, i, _minB, _maxB) == false;
+
+		if( a != -1 )
+			removeMember(a, i);
+		if( b != -1 )
+			removeMember(b, k);
+		if( a != -1 )
+			addMember(a, k);
+		if( b != -1 )
+			addMember(b, i);
+
+		if( a != -1 )
+			update(a, emptyA, _minA, _maxA);
+		if( b != -1 )
+			update(b, emptyB, _minB, _maxB);
+	}
+
+	// A cluster only takes points of its class, unless the only member with another class is the one leaving
+	private void check(int i, int j, int leaving)
+	{
+		if( j == -1 || _class[j] == -1 || _class[j] == _store.getClassID(i) )
+			return;
+
+		if( leaving != -1 && _size[j] == 1 )
+			return;
+
+		throw new RuntimeException("Point of class " + _store.getClassID(i) + " moved to class " + _class[j] + " cluster!");
+	}
+
+	// Box of cluster j without the member removed and with the point added, either may be -1; false if it ends up empty
+	private boolean box(int j, int removed, int added, double[] min, double[] max)
+	{
+		double[] values = _store.getCoordinates();
+		int d = _dimension;
+		int size = _size[j] - (removed != -1 ? 1 : 0);
+
+		if( size == 0 )
+		{
+			if( added == -1 )
+				return false;
+
+			System.arraycopy(values, _store.offset(added), min, 0, d);
+			System.arraycopy(values, _store.offset(added), max, 0, d);
+			return true;
+		}
+
+		System.arraycopy(_min, j * d, min, 0, d);
+		System.arraycopy(_max, j * d, max, 0, d);
+
+		if( removed != -1 && onBorder(removed, min, max) )
+		{
+			Arrays.fill(min, Double.POSITIVE_INFINITY);
+			Arrays.fill(max, Double.NEGATIVE_INFINITY);
+
+			for(int k=0; k<_size[j]; ++k) if( _members[j][k] != removed )
+			{
+				Vectors.min(min, values, _store.offset(_members[j][k]), d);
+				Vectors.max(max, values, _store.offset(_members[j][k]), d);
+			}
+		}
+
+		if( added != -1 )
+		{
+			Vectors.min(min, values, _store.offset(added), d);
+			Vectors.max(max, values, _store.offset(added), d);
+		}
+
+		return true;
+	}
+
+	private boolean onBorder(int i, double[] min, double[] max)
+	{
+		for(int t=0; t<_dimension; ++t)
+		{
+			if( _store.get(i, t) == min[t] || _store.get(i, t) == max[t] )
+				return true;
+		}
+
+		return false;
+	}
+
+	// Points of the other classes inside the box, nothing for an empty cluster
+	private int coverage(int classID, boolean nonEmpty, double[] min, double[] max)
+	{
+		if( nonEmpty == false )
+			return 0;
+
+		int ret = 0;
+		for(int c=0; c<_instance.getClasses(); ++c) if( c != classID )
+			ret += _instance.getIndex(c).count(min, max);
+
+		return ret;
+	}
+
+	private void addMember(int j, int i)
+	{
+		if( _size[j] == _members[j].length )
+			_members[j] = Arrays.copyOf(_members[j], 2 * _size[j]);
+
+		_members[j][_size[j]] = i;
+		_position[i] = _size[j]++;
+		_clusterOf[i] = j;
+		_class[j] = _store.getClassID(i);
+	}
+
+	private void removeMember(int j, int i)
+	{
+		int last = _members[j][--_size[j]];
+		_members[j][_position[i]] = last;
+		_position[last] = _position[i];
+		_clusterOf[i] = -1;
+
+		if( _size[j] == 0 )
+			_class[j] = -1;
+	}
+
+	private void update(int j, boolean empty, double[] min, double[] max)
+	{
+		_objective -= _covered[j];
+
+		if( empty )
+		{
+			_covered[j] = 0;
+			return;
+		}
+
+		System.arraycopy(min, 0, _min, j * _dimension, _dimension);
+		System.arraycopy(max, 0, _max, j * _dimension, _dimension);
+		_covered[j] = coverage(_class[j], true, min, max);
+		_objective += _covered[j];
+	}
+
+	// Number of misclassified points, as Solution.misclassified() would count them
+	public int getObjective()
+	{
+		return _objective;
+	}
+
+	public int getClusterOf(int i)
+	{
+		return _clusterOf[i];
+	}
+
+	public int getClusters()
+	{
+		return _members.length;
+	}
+
+	public int size(int j)
+	{
+		return _size[j];
+	}
+
+	// Class of the points of cluster j, -1 while it is empty
+	public int getClassID(int j)
+	{
+		return _class[j];
+	}
+
+	public double getMin(int j, int coordinate)
+	{
+		return _min[j * _dimension + coordinate];
+	}
+
+	public double getMax(int j, int coordinate)
+	{
+		return _max[j * _dimension + coordinate];
+	}
+}
@@ -1,10 +1,9 @@
 package general;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.HashMap;
@@ -14,14 +13,17 @@ public class Instance
 {
 	private String _name;
 	private int _classes;
-	private ArrayList<Point> _points;
+	private PointStore _store;
+	private Point[] _views;
+	private KdTree[] _indexes;
+	private double[] _min;
+	private double[] _max;
 	private Map<Integer, Integer> _clusters;
 	
 	public Instance(String name, int classes)
 	{
 		_name = name;
 		_classes = classes;
-		_points = new ArrayList<Point>();
 		_clusters = new HashMap<Integer, Integer>();
 		
 		for(int i=0; i<_classes; ++i)
@@ -32,13 +34,40 @@ public class Instance
 	{
 		_name = name;
 		_classes = classes;
-		_points = new ArrayList<Point>();
 		_clusters = new HashMap<Integer, Integer>();
 		
 		for(int i=0; i<_classes; ++i)
 			_clusters.put(i, clustersInEachClass);
 	}
 	
+	// Wraps an already filled point store, whose class IDs must be in [0, classes)
+	public Instance(String name, int classes, int clustersInEachClass, PointStore store)
+	{
+		this(name, classes, clustersInEachClass);
+		
+		_store = store;
+		_min = new double[store.getDimension()];
+		_max = new double[store.getDimension()];
+		
+		for(int t=0; t<store.getDimension(); ++t)
+		{
+			_min[t] = Double.POSITIVE_INFINITY;
+			_max[t] = Double.NEGATIVE_INFINITY;
+		}
+		
+		for(int i=0; i<store.size(); ++i)
+		{
+			if( store.getClassID(i) < 0 || store.getClassID(i) >= classes )
+				throw new RuntimeException("Invalid class ID: " + store.getClassID(i));
+			
+			for(int t=0; t<store.getDimension(); ++t)
+			{
+				_min[t] = Math.min(_min[t], store.get(i, t));
+				_max[t] = Math.max(_max[t], store.get(i, t));
+			}
+		}
+	}
+	
 	public void setName(String name)
 	{
 		_name = name;
@@ -57,25 +86,87 @@ public class Instance
 		_clusters.put(classID, clusters);
 	}
 	
-	public void add(Point p)
+	// Appends the coordinates of p and returns the view of the new point: p itself, attached to this instance, unless
+	// it already belongs to an instance, in which case a new view is attached. Later writes to p do not reach the store
+	public synchronized Point add(Point p)
 	{
-		if( _points.size() > 0 && _points.get(0).getDimension() != p.getDimension() )
-			throw new RuntimeException("Input points have different dimensions!");
+		if( _store == null || _store.size() == 0 )
+		{
+			_store = new PointStore(p.getDimension());
+			_min = new double[p.getDimension()];
+			_max = new double[p.getDimension()];
+			
+			for(int t=0; t<p.getDimension(); ++t)
+				_min[t] = _max[t] = p.get(t);
+		}
+		
+		_store.add(p);
+		_indexes = null;
+		
+		for(int t=0; t<p.getDimension(); ++t)
+		{
+			_min[t] = Math.min(_min[t], p.get(t));
+			_max[t] = Math.max(_max[t], p.get(t));
+		}
+		
+		int index = _store.size() - 1;
+		Point ret = p.getInstance() == null ? p : _store.toPoint(index);
+		ret.attach(this, index);
+		
+		if( _views == null )
+			_views = new Point[_store.size()];
+		else if( _views.length < _store.size() )
+			_views = Arrays.copyOf(_views, Math.max(_store.size(), 2 * _views.length));
 		
-		_points.add(p);
+		_views[index] = ret;
+		
+		return ret;
 	}
 	
 	public int getPoints()
 	{
-		return _points.size();
+		return _store == null ? 0 : _store.size();
 	}
 	
-	public Point getPoint(int i)
+	// Lazy caches are filled under the instance lock, so solvers running in parallel can share the instance
+	public synchronized Point getPoint(int i)
 	{
 		if (i < 0 || i >= getPoints())
 			throw new RuntimeException("Out of range point index: " + i);
 		
-		return _points.get(i);
+		if( _views == null )
+			_views = new Point[getPoints()];
+		
+		if( _views[i] == null )
+		{
+			_views[i] = _store.toPoint(i);
+			_views[i].attach(this, i);
+		}
+		
+		return _views[i];
+	}
+	
+	public PointStore getStore()
+	{
+		if( _store == null )
+			_store = new PointStore(0);
+		
+		return _store;
+	}
+	
+	// Spatial index over the points of the given class, built on first use
+	public synchronized KdTree getIndex(int classID)
+	{
+		if( classID < 0 || classID >= _classes )
+			throw new RuntimeException("Invalid class ID: " + classID);
+		
+		if( _indexes == null )
+			_indexes = new KdTree[_classes];
+		
+		if( _indexes[classID] == null )
+			_indexes[classID] = new KdTree(getStore(), IntStream.range(0, getPoints()).filter(i -> _store.getClassID(i) == classID).toArray());
+		
+		return _indexes[classID];
 	}
 	
 	public int getClusters(int classID)
@@ -90,7 +181,7 @@ public class Instance
 	
 	public int getDimension()
 	{
-		return _points.size() == 0 ? 0 : _points.get(0).getDimension();
+		return _store == null ? 0 : _store.getDimension();
 	}
 	
 	public int getClasses()
@@ -100,12 +191,12 @@ public class Instance
 	
 	public double min(int coordinate)
 	{
-		return _points.stream().mapToDouble(p -> p.get(coordinate)).min().orElse(0);
+		return getPoints() == 0 ? 0 : _min[coordinate];
 	}
 	
 	public double max(int coordinate)
 	{
-		return _points.stream().mapToDouble(p -> p.get(coordinate)).max().orElse(0);
+		return getPoints() == 0 ? 0 : _max[coordinate];
 	}
 	
 	public double globalDiameter()
@@ -124,37 +215,53 @@ public class Instance
 	
 	public void scale(double factor)
 	{
-		for(Point point: _points)
-			point.scale(factor);
+		if( _store != null )
+			_store.scale(factor);
+		
+		_views = null;
+		_indexes = null;
+		
+		for(int t=0; t<getDimension(); ++t)
+		{
+			double min = factor * _min[t];
+			double max = factor * _max[t];
+			
+			_min[t] = Math.min(min, max);
+			_max[t] = Math.max(min, max);
+		}
 	}
 
 	public void print()
 	{
-		for(int i=0; i<_points.size(); ++i)
-			System.out.println("x[" + i + "] = " + _points.get(i));
+		for(int i=0; i<getPoints(); ++i)
+			System.out.println("x[" + i + "] = " + getPoint(i));
 		
 		for(int i=0; i<_classes; ++i)
 			System.out.println("clusters[" + i + "] = " + _clusters.get(i));
 	}
 	
-	public List<Point> asList()
+	// Point objects are materialized lazily as views over the store
+	public synchronized List<Point> asList()
 	{
-		return Collections.unmodifiableList(_points);
+		for(int i=0; i<getPoints(); ++i)
+			getPoint(i);
+		
+		return Collections.unmodifiableList(_views == null ? Collections.emptyList() : Arrays.asList(_views).subList(0, getPoints()));
 	}
 	
 	public Stream<Point> stream()
 	{
-		return _points.stream();
+		return IntStream.range(0, getPoints()).mapToObj(i -> getPoint(i));
 	}
 
 	public Stream<Point> stream(int classID)
 	{
-		return _points.stream().filter(p -> p.getClassID() == classID);
+		return IntStream.range(0, getPoints()).filter(i -> _store.getClassID(i) == classID).mapToObj(i -> getPoint(i));
 	}
 	
 	public Point random(Random random, int classID)
 	{
-		List<Point> points = this.stream(classID).collect(Collectors.toList());
-		return points.get(random.nextInt(points.size()));
+		int[] points = IntStream.range(0, getPoints()).filter(i -> _store.getClassID(i) == classID).toArray();
+		return getPoint(points[random.nextInt(points.length)]);
 	}
 }
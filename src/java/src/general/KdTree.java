@@ -0,0 +1,213 @@
+package general;
+
+import java.util.Arrays;
+
+// Static k-d tree over a subset of the points of a store, answering axis-aligned box queries
+public class KdTree
+{
+	private static final int _leafSize = 8;
+
+	private PointStore _store;
+	private int _dimension;
+	private int[] _order;
+
+	// Nodes are kept in flat arrays, node 0 is the root
+	private int _nodes;
+	private int[] _from;
+	private int[] _to;
+	private int[] _left;
+	private int[] _right;
+	private double[] _boxMin;
+	private double[] _boxMax;
+
+	public KdTree(PointStore store, int[] indexes)
+	{
+		_store = store;
+		_dimension = store.getDimension();
+		_order = indexes.clone();
+
+		int capacity = Math.max(1, 2 * (indexes.length / _leafSize + 1));
+		_from = new int[capacity];
+		_to = new int[capacity];
+		_left = new int[capacity];
+		_right = new int[capacity];
+		_boxMin = new double[capacity * _dimension];
+		_boxMax = new double[capacity * _dimension];
+
+		build(0, _order.length);
+	}
+
+	public int size()
+	{
+		return _order.length;
+	}
+
+	private int build(int from, int to)
+	{
+		int node = newNode(from, to);
+
+		int split = -1;
+		double widest = -1;
+
+		for(int t=0; t<_dimension; ++t)
+		{
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+
+			for(int k=from; k<to; ++k)
+			{
+				min = Math.min(min, _store.get(_order[k], t));
+				max = Math.max(max, _store.get(_order[k], t));
+			}
+
+			_boxMin[node * _dimension + t] = min;
+			_boxMax[node * _dimension + t] = max;
+
+			if( max - min > widest )
+			{
+				widest = max - min;
+				split = t;
+			}
+		}
+
+		if( to - from > _leafSize && widest > 0 )
+		{
+			int middle = (from + to) / 2;
+			select(from, to - 1, middle, split);
+
+			int left = build(from, middle);
+			int right = build(middle, to);
+
+			_left[node] = left;
+			_right[node] = right;
+		}
+
+		return node;
+	}
+
+	private int newNode(int from, int to)
+	{
+		if( _nodes == _from.length )
+		{
+			int capacity = 2 * _nodes;
+			_from = Arrays.copyOf(_from, capacity);
+			_to = Arrays.copyOf(_to, capacity);
+			_left = Arrays.copyOf(_left, capacity);
+			_right = Arrays.copyOf(_right, capacity);
+			_boxMin = Arrays.copyOf(_boxMin, capacity * _dimension);
+			_boxMax = Arrays.copyOf(_boxMax, capacity * _dimension);
+		}
+
+		_from[_nodes] = from;
+		_to[_nodes] = to;
+		_left[_nodes] = -1;
+		_right[_nodes] = -1;
+
+		return _nodes++;
+	}
+
+	// Quickselect: leaves in position k the element that would be there if [lo, hi] were sorted by coordinate t
+	private void select(int lo, int hi, int k, int t)
+	{
+		while( lo < hi )
+		{
+			double pivot = _store.get(_order[(lo + hi) >>> 1], t);
+			int i = lo;
+			int j = hi;
+
+			while( i <= j )
+			{
+				while( _store.get(_order[i], t) < pivot )
+					++i;
+				while( _store.get(_order[j], t) > pivot )
+					--j;
+
+				if( i <= j )
+				{
+					int aux = _order[i];
+					_order[i++] = _order[j];
+					_order[j--] = aux;
+				}
+			}
+
+			if( k <= j )
+				hi = j;
+			else if( k >= i )
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	public int count(double[] min, double[] max)
+	{
+		return _order.length == 0 ? 0 : count(0, min, max);
+	}
+
+	private int count(int node, double[] min, double[] max)
+	{
+		int offset = node * _dimension;
+		boolean inside = true;
+
+		for(int t=0; t<_dimension; ++t)
+		{
+			if( _boxMax[offset + t] < min[t] || _boxMin[offset + t] > max[t] )
+				return 0;
+
+			inside &= min[t] <= _boxMin[offset + t] && _boxMax[offset + t] <= max[t];
+		}
+
+		if( inside )
+			return _to[node] - _from[node];
+
+		if( _left[node] != -1 )
+			return count(_left[node], min, max) + count(_right[node], min, max);
+
+		return Vectors.countInside(min, max, _store.getCoordinates(), _order, _from[node], _to[node], _dimension);
+	}
+
+	// Indexes of the points inside the box, in increasing order
+	public int[] query(double[] min, double[] max)
+	{
+		int[] ret = new int[_order.length == 0 ? 0 : count(0, min, max)];
+
+		if( ret.length > 0 )
+			collect(0, min, max, ret, 0);
+
+		Arrays.sort(ret);
+		return ret;
+	}
+
+	private int collect(int node, double[] min, double[] max, int[] target, int position)
+	{
+		int offset = node * _dimension;
+		boolean inside = true;
+
+		for(int t=0; t<_dimension; ++t)
+		{
+			if( _boxMax[offset + t] < min[t] || _boxMin[offset + t] > max[t] )
+				return position;
+
+			inside &= min[t] <= _boxMin[offset + t] && _boxMax[offset + t] <= max[t];
+		}
+
+		if( inside )
+		{
+			System.arraycopy(_order, _from[node], target, position, _to[node] - _from[node]);
+			return position + _to[node] - _from[node];
+		}
+
+		if( _left[node] != -1 )
+			return collect(_right[node], min, max, target, collect(_left[node], min, max, target, position));
+
+		for(int k=_from[node]; k<_to[node]; ++k) if( contains(_order[k], min, max) )
+			target[position++] = _order[k];
+
+		return position;
+	}
+
+	private boolean contains(int index, double[] min, double[] max)
+	{
+		return Vectors.inside(min, max, _store.getCoordinates(), _store.offset(index), _dimension);
+	}
+}
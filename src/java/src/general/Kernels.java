@@ -0,0 +1,16 @@
+package general;
+
+// Coordinate kernels that have both a scalar and a SIMD implementation, selected through Vectors.setSimd()
+public interface Kernels
+{
+	double squaredDistance(double[] a, int offsetA, double[] b, int offsetB, int dimension);
+
+	// Squared distances from one point to count vectors stored contiguously in others, written into target
+	void squaredDistances(double[] point, int offset, double[] others, int count, int dimension, double[] target);
+
+	// Whether min <= x <= max on every coordinate
+	boolean inside(double[] min, double[] max, double[] x, int offsetX, int dimension);
+
+	// Number of the points indexes[from..to) of a coordinate block inside the box
+	int countInside(double[] min, double[] max, double[] coordinates, int[] indexes, int from, int to, int dimension);
+}
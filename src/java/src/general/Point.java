@@ -8,6 +8,9 @@ public class Point
 	private int _id;
 	private int _class;
 	private double[] _values;
+	// Set for the points returned by Instance.getPoint(), which can join clusters
+	private Instance _instance;
+	private int _index = -1;
 	
 	public Point(int id, int classID, int dimension)
 	{
@@ -26,6 +29,23 @@ public class Point
 		return ret;
 	}
 	
+	void attach(Instance instance, int index)
+	{
+		_instance = instance;
+		_index = index;
+	}
+	
+	public Instance getInstance()
+	{
+		return _instance;
+	}
+	
+	// Index of the point in its instance, or -1
+	public int getIndex()
+	{
+		return _index;
+	}
+	
 	public void setId(int id)
 	{
 		_id = id;
@@ -54,6 +74,12 @@ public class Point
 		_values[i] = value;
 	}
 	
+	// Backing array of the coordinates, for the kernels in Vectors; writes go through to the point
+	public double[] getValues()
+	{
+		return _values;
+	}
+	
 	public double get(int i)
 	{
 		if( i < 0 || i >= _values.length )
@@ -67,8 +93,7 @@ public class Point
 		if( this.getDimension() != other.getDimension() )
 			throw new RuntimeException("Summing points of different dimension!");
 		
-		for(int i=0; i<getDimension(); ++i)
-			_values[i] += other.get(i);
+		Vectors.axpy(1, other._values, 0, _values, 0, _values.length);
 	}
 	
 	public void subtract(Point other)
@@ -76,8 +101,7 @@ public class Point
 		if( this.getDimension() != other.getDimension() )
 			throw new RuntimeException("Summing points of different dimension!");
 		
-		for(int i=0; i<getDimension(); ++i)
-			_values[i] -= other.get(i);
+		Vectors.axpy(-1, other._values, 0, _values, 0, _values.length);
 	}
 
 	public void divide(double factor)
@@ -91,10 +115,7 @@ public class Point
 	
 	public void escapeFrom(Point other, double distance)
 	{
-		Point difference = this.clone();
-		difference.subtract(other);
-		difference.scale(distance);
-		this.sum(difference);
+		Vectors.escape(_values, 0, other._values, 0, distance, _values.length);
 	}
 	
 	public double distance(Point other)
@@ -102,11 +123,7 @@ public class Point
 		if( this.getDimension() != other.getDimension() )
 			throw new RuntimeException("Taking distance between points of different dimensions!");
 
-		double sum = 0;
-		for(int i=0; i<getDimension(); ++i)
-			sum += (this.get(i) - other.get(i)) * (this.get(i) - other.get(i));
-		
-		return Math.sqrt(sum);
+		return Vectors.distance(_values, 0, other._values, 0, _values.length);
 	}
 	
 	public Point clone()
@@ -126,8 +143,7 @@ public class Point
 	
 	public void scale(double factor)
 	{
-		for(int i=0; i<getDimension(); ++i)
-			this.set(i, factor * this.get(i));
+		Vectors.scale(factor, _values, 0, _values.length);
 	}
 	
 	public void normalize()
@@ -0,0 +1,149 @@
+package general;
+
+import java.util.Arrays;
+
+public class PointStore
+{
+	private int _dimension;
+	private int _size;
+	private double[] _coordinates;
+	private int[] _classes;
+	private int[] _ids;
+
+	public PointStore(int dimension)
+	{
+		this(dimension, 16);
+	}
+
+	public PointStore(int dimension, int capacity)
+	{
+		_dimension = dimension;
+		_size = 0;
+		_coordinates = new double[Math.max(1, capacity) * Math.max(1, dimension)];
+		_classes = new int[Math.max(1, capacity)];
+		_ids = new int[Math.max(1, capacity)];
+	}
+
+	// Takes ownership of the given arrays, holding size points
+	public PointStore(int dimension, double[] coordinates, int[] classes, int[] ids, int size)
+	{
+		if( coordinates.length < size * dimension || classes.length < size || ids.length < size )
+			throw new RuntimeException("Point store arrays are too short for " + size + " points!");
+		
+		_dimension = dimension;
+		_size = size;
+		_coordinates = coordinates;
+		_classes = classes;
+		_ids = ids;
+	}
+
+	public int add(int id, int classID, double[] values, int from)
+	{
+		ensureCapacity(_size + 1);
+
+		System.arraycopy(values, from, _coordinates, _size * _dimension, _dimension);
+		_classes[_size] = classID;
+		_ids[_size] = id;
+
+		return _size++;
+	}
+
+	public int add(Point point)
+	{
+		if( point.getDimension() != _dimension )
+			throw new RuntimeException("Input points have different dimensions!");
+
+		ensureCapacity(_size + 1);
+
+		for(int t=0; t<_dimension; ++t)
+			_coordinates[_size * _dimension + t] = point.get(t);
+
+		_classes[_size] = point.getClassID();
+		_ids[_size] = point.getId();
+
+		return _size++;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if( capacity <= _classes.length )
+			return;
+
+		int newCapacity = Math.max(capacity, 2 * _classes.length);
+
+		_coordinates = Arrays.copyOf(_coordinates, newCapacity * Math.max(1, _dimension));
+		_classes = Arrays.copyOf(_classes, newCapacity);
+		_ids = Arrays.copyOf(_ids, newCapacity);
+	}
+
+	public int size()
+	{
+		return _size;
+	}
+
+	public int getDimension()
+	{
+		return _dimension;
+	}
+
+	public double get(int index, int coordinate)
+	{
+		return _coordinates[index * _dimension + coordinate];
+	}
+
+	public void set(int index, int coordinate, double value)
+	{
+		_coordinates[index * _dimension + coordinate] = value;
+	}
+
+	public int getClassID(int index)
+	{
+		return _classes[index];
+	}
+
+	public int getId(int index)
+	{
+		return _ids[index];
+	}
+
+	// Offset of the first coordinate of the given point inside getCoordinates()
+	public int offset(int index)
+	{
+		return index * _dimension;
+	}
+
+	// Raw row-major coordinate block, valid until the next call to add()
+	public double[] getCoordinates()
+	{
+		return _coordinates;
+	}
+
+	public int[] getClassIDs()
+	{
+		return _classes;
+	}
+
+	public int[] getIds()
+	{
+		return _ids;
+	}
+
+	public void scale(double factor)
+	{
+		for(int i=0; i<_size * _dimension; ++i)
+			_coordinates[i] *= factor;
+	}
+
+	public Point toPoint(int index)
+	{
+		if( index < 0 || index >= _size )
+			throw new RuntimeException("Out of range point index: " + index);
+
+		Point ret = new Point(_ids[index], _classes[index], _dimension);
+
+		for(int t=0; t<_dimension; ++t)
+			ret.set(t, _coordinates[index * _dimension + t]);
+
+		return ret;
+	}
+}
@@ -0,0 +1,255 @@
+package general;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// Shrinks an instance before the exact model, and maps solutions between the original and the reduced instance:
+//   - points of the same class with identical coordinates are merged into one point, weighted by their multiplicity
+//   - in classes with a single cluster, points that are not extreme in any coordinate are removed when no box
+//     of another class can reach them, since the only box of their class covers them anyway
+public class Reduction
+{
+	private Instance _instance;
+	private Instance _reduced;
+	private boolean _duplicates = true;
+	private boolean _interior = true;
+
+	// Original indexes merged into each reduced point, and original indexes removed in each class
+	private int[][] _groups;
+	private int[] _weights;
+	private ArrayList<ArrayList<Integer>> _removed;
+
+	public Reduction(Instance instance)
+	{
+		_instance = instance;
+	}
+
+	public Instance reduce()
+	{
+		PointStore store = _instance.getStore();
+		int p = _instance.getPoints();
+		int d = _instance.getDimension();
+
+		// Sorting by class and coordinates puts duplicates next to each other
+		Integer[] order = new Integer[p];
+		for(int i=0; i<p; ++i)
+			order[i] = i;
+
+		if( _duplicates )
+			Arrays.sort(order, (i, j) -> compare(store, i, j));
+
+		ArrayList<int[]> groups = new ArrayList<int[]>();
+		for(int k=0; k<p; )
+		{
+			int end = k + 1;
+			while( _duplicates && end < p && compare(store, order[k], order[end]) == 0 )
+				end++;
+
+			int[] group = new int[end - k];
+			for(int m=k; m<end; ++m)
+				group[m - k] = order[m];
+
+			Arrays.sort(group);
+			groups.add(group);
+			k = end;
+		}
+
+		// Keeps the original order of the representatives
+		groups.sort(Comparator.comparingInt(group -> group[0]));
+
+		boolean[] removed = new boolean[groups.size()];
+		_removed = new ArrayList<ArrayList<Integer>>();
+		for(int c=0; c<_instance.getClasses(); ++c)
+			_removed.add(new ArrayList<Integer>());
+
+		if( _interior )
+			removeInterior(groups, removed);
+
+		PointStore reduced = new PointStore(d, groups.size());
+		ArrayList<int[]> kept = new ArrayList<int[]>();
+
+		for(int k=0; k<groups.size(); ++k)
+		{
+			int i = groups.get(k)[0];
+
+			if( removed[k] )
+			{
+				for(int member: groups.get(k))
+					_removed.get(store.getClassID(i)).add(member);
+
+				continue;
+			}
+
+			reduced.add(store.getId(i), store.getClassID(i), store.getCoordinates(), store.offset(i));
+			kept.add(groups.get(k));
+		}
+
+		_groups = kept.toArray(new int[0][]);
+		_weights = Arrays.stream(_groups).mapToInt(group -> group.length).toArray();
+
+		_reduced = new Instance(_instance.getName(), _instance.getClasses(), 1, reduced);
+		for(int c=0; c<_instance.getClasses(); ++c)
+			_reduced.setClusters(c, _instance.getClusters(c));
+
+		return _reduced;
+	}
+
+	private static int compare(PointStore store, int i, int j)
+	{
+		if( store.getClassID(i) != store.getClassID(j) )
+			return Integer.compare(store.getClassID(i), store.getClassID(j));
+
+		for(int t=0; t<store.getDimension(); ++t) if( store.get(i, t) != store.get(j, t) )
+			return Double.compare(store.get(i, t), store.get(j, t));
+
+		return 0;
+	}
+
+	// An optimal box never leaves the bounding box of its class, so a point outside the bounding box of
+	// every other class can never be covered by a box of another class
+	private void removeInterior(ArrayList<int[]> groups, boolean[] removed)
+	{
+		PointStore store = _instance.getStore();
+		int d = _instance.getDimension();
+		int c = _instance.getClasses();
+
+		double[][] min = new double[c][d];
+		double[][] max = new double[c][d];
+		int[][] argmin = new int[c][d];
+		int[][] argmax = new int[c][d];
+
+		for(int k=0; k<c; ++k)
+		{
+			Arrays.fill(min[k], Double.POSITIVE_INFINITY);
+			Arrays.fill(max[k], Double.NEGATIVE_INFINITY);
+		}
+
+		for(int k=0; k<groups.size(); ++k)
+		{
+			int i = groups.get(k)[0];
+			int classID = store.getClassID(i);
+
+			for(int t=0; t<d; ++t)
+			{
+				if( store.get(i, t) < min[classID][t] )
+				{
+					min[classID][t] = store.get(i, t);
+					argmin[classID][t] = k;
+				}
+				if( store.get(i, t) > max[classID][t] )
+				{
+					max[classID][t] = store.get(i, t);
+					argmax[classID][t] = k;
+				}
+			}
+		}
+
+		for(int k=0; k<groups.size(); ++k)
+		{
+			int i = groups.get(k)[0];
+			int classID = store.getClassID(i);
+
+			if( _instance.getClusters(classID) != 1 )
+				continue;
+
+			final int group = k;
+			if( IntStream.range(0, d).anyMatch(t -> argmin[classID][t] == group || argmax[classID][t] == group) )
+				continue;
+
+			boolean reachable = false;
+			for(int other=0; other<c && reachable == false; ++other) if( other != classID )
+			{
+				boolean inside = true;
+				for(int t=0; t<d; ++t)
+					inside &= min[other][t] <= store.get(i, t) && store.get(i, t) <= max[other][t];
+
+				reachable = inside;
+			}
+
+			removed[k] = reachable == false;
+		}
+	}
+
+	// Number of original points merged into each reduced point, to be used as objective weights
+	public int[] getWeights()
+	{
+		return _weights;
+	}
+
+	public Instance getReduced()
+	{
+		return _reduced;
+	}
+
+	public int getRemoved()
+	{
+		return _instance.getPoints() - Arrays.stream(_groups).mapToInt(group -> group.length).sum();
+	}
+
+	// Maps a solution of the reduced instance back to the original points
+	public Solution expand(Solution solution)
+	{
+		if( solution == null )
+			return null;
+
+		Solution ret = new Solution();
+		int[] classOf = new int[solution.size()];
+
+		for(int j=0; j<solution.size(); ++j)
+		{
+			Cluster cluster = new Cluster();
+
+			for(int k=0; k<_groups.length; ++k) if( solution.getCluster(j).contains(_reduced, k) )
+			for(int i: _groups[k])
+				cluster.add(_instance, i);
+
+			classOf[j] = cluster.getClassID();
+			ret.add(cluster);
+		}
+
+		// Removed points lie inside the box of the only cluster of their class
+		for(int c=0; c<_instance.getClasses(); ++c) if( _removed.get(c).size() > 0 )
+		{
+			final int classID = c;
+			int j = IntStream.range(0, classOf.length).filter(k -> classOf[k] == classID).findFirst().orElse(-1);
+
+			if( j == -1 )
+				continue;
+
+			for(int i: _removed.get(c))
+				ret.getCluster(j).add(_instance, i);
+		}
+
+		return ret;
+	}
+
+	// Maps a solution of the original instance to the reduced points, for example to warm start the model
+	public Solution restrict(Solution solution)
+	{
+		Solution ret = new Solution();
+
+		for(Cluster original: solution.getClusters())
+		{
+			Cluster cluster = new Cluster();
+
+			for(int k=0; k<_groups.length; ++k) if( original.contains(_instance, _groups[k][0]) )
+				cluster.add(_reduced, k);
+
+			ret.add(cluster);
+		}
+
+		return ret;
+	}
+
+	public void setDuplicates(boolean duplicates)
+	{
+		_duplicates = duplicates;
+	}
+
+	public void setInterior(boolean interior)
+	{
+		_interior = interior;
+	}
+}
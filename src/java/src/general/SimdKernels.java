@@ -0,0 +1,129 @@
+package general;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Kernels on the incubating Vector API, vectorized along the coordinates; pays off from a few dozen dimensions.
+// Needs --add-modules jdk.incubator.vector to compile and run, and is only loaded by name from Vectors
+public class SimdKernels implements Kernels
+{
+	private static final VectorSpecies<Double> _species = DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public double squaredDistance(double[] a, int offsetA, double[] b, int offsetB, int dimension)
+	{
+		DoubleVector sum = DoubleVector.zero(_species);
+		int bound = _species.loopBound(dimension);
+		int t = 0;
+
+		for(; t<bound; t+=_species.length())
+		{
+			DoubleVector diff = DoubleVector.fromArray(_species, a, offsetA + t).sub(DoubleVector.fromArray(_species, b, offsetB + t));
+			sum = diff.fma(diff, sum);
+		}
+
+		double ret = sum.reduceLanes(VectorOperators.ADD);
+		for(; t<dimension; ++t)
+		{
+			double diff = a[offsetA + t] - b[offsetB + t];
+			ret += diff * diff;
+		}
+
+		return ret;
+	}
+
+	// Four vectors at a time, so each slice of the point is loaded once for all four and the four sums are independent
+	@Override
+	public void squaredDistances(double[] point, int offset, double[] others, int count, int dimension, double[] target)
+	{
+		int bound = _species.loopBound(dimension);
+		int k = 0;
+
+		for(; k+4<=count; k+=4)
+		{
+			int o0 = k * dimension;
+			int o1 = o0 + dimension;
+			int o2 = o1 + dimension;
+			int o3 = o2 + dimension;
+
+			DoubleVector s0 = DoubleVector.zero(_species);
+			DoubleVector s1 = DoubleVector.zero(_species);
+			DoubleVector s2 = DoubleVector.zero(_species);
+			DoubleVector s3 = DoubleVector.zero(_species);
+			int t = 0;
+
+			for(; t<bound; t+=_species.length())
+			{
+				DoubleVector x = DoubleVector.fromArray(_species, point, offset + t);
+				DoubleVector d0 = x.sub(DoubleVector.fromArray(_species, others, o0 + t));
+				DoubleVector d1 = x.sub(DoubleVector.fromArray(_species, others, o1 + t));
+				DoubleVector d2 = x.sub(DoubleVector.fromArray(_species, others, o2 + t));
+				DoubleVector d3 = x.sub(DoubleVector.fromArray(_species, others, o3 + t));
+				s0 = d0.fma(d0, s0);
+				s1 = d1.fma(d1, s1);
+				s2 = d2.fma(d2, s2);
+				s3 = d3.fma(d3, s3);
+			}
+
+			double r0 = s0.reduceLanes(VectorOperators.ADD);
+			double r1 = s1.reduceLanes(VectorOperators.ADD);
+			double r2 = s2.reduceLanes(VectorOperators.ADD);
+			double r3 = s3.reduceLanes(VectorOperators.ADD);
+
+			for(; t<dimension; ++t)
+			{
+				double x = point[offset + t];
+				r0 += (x - others[o0 + t]) * (x - others[o0 + t]);
+				r1 += (x - others[o1 + t]) * (x - others[o1 + t]);
+				r2 += (x - others[o2 + t]) * (x - others[o2 + t]);
+				r3 += (x - others[o3 + t]) * (x - others[o3 + t]);
+			}
+
+			target[k] = r0;
+			target[k + 1] = r1;
+			target[k + 2] = r2;
+			target[k + 3] = r3;
+		}
+
+		for(; k<count; ++k)
+			target[k] = squaredDistance(point, offset, others, k * dimension, dimension);
+	}
+
+	@Override
+	public boolean inside(double[] min, double[] max, double[] x, int offsetX, int dimension)
+	{
+		int bound = _species.loopBound(dimension);
+		int t = 0;
+
+		for(; t<bound; t+=_species.length())
+		{
+			DoubleVector value = DoubleVector.fromArray(_species, x, offsetX + t);
+			VectorMask<Double> outside = value.compare(VectorOperators.LT, DoubleVector.fromArray(_species, min, t))
+					.or(value.compare(VectorOperators.GT, DoubleVector.fromArray(_species, max, t)));
+
+			if( outside.anyTrue() )
+				return false;
+		}
+
+		for(; t<dimension; ++t)
+		{
+			if( min[t] > x[offsetX + t] || max[t] < x[offsetX + t] )
+				return false;
+		}
+
+		return true;
+	}
+
+	// One point at a time, each check exits at the first vector of coordinates outside the box
+	@Override
+	public int countInside(double[] min, double[] max, double[] coordinates, int[] indexes, int from, int to, int dimension)
+	{
+		int ret = 0;
+		for(int k=from; k<to; ++k) if( inside(min, max, coordinates, indexes[k] * dimension, dimension) )
+			++ret;
+
+		return ret;
+	}
+}
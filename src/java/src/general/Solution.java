@@ -43,6 +43,22 @@ public class Solution
 		return ret;
 	}
 
+	// Copy with new clusters over the same points, unaffected by later changes to this solution
+	public Solution snapshot()
+	{
+		Solution ret = new Solution();
+		
+		for(Cluster cluster: _clusters)
+		{
+			Cluster copy = new Cluster();
+			copy.merge(cluster);
+			
+			ret.add(copy);
+		}
+		
+		return ret;
+	}
+
 	public ArrayList<Cluster> getClusters()
 	{
 		return _clusters;
@@ -103,6 +119,6 @@ public class Solution
 
 	public int misclassified(Instance instance)
 	{
-		return _clusters.stream().mapToInt(c -> c.misclassified(instance).size()).sum();
+		return _clusters.stream().mapToInt(c -> c.countMisclassified(instance)).sum();
 	}
 }
@@ -0,0 +1,8 @@
+package general;
+
+// Receives every improving solution found by an anytime solver
+public interface SolutionListener
+{
+	// The bound is a lower bound on the objective (0 when the solver has none), the gap is relative and the elapsed time in seconds
+	void improved(Solution solution, double objective, double bound, double gap, double elapsed);
+}
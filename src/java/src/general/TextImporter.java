@@ -0,0 +1,429 @@
+package general;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+// Builds an instance from a CSV file with a label column or from a LIBSVM file, in a single streaming pass.
+// Lines are parsed in place over a byte buffer, no String is created per field.
+public class TextImporter
+{
+	private int _labelColumn = -1;
+	private byte _separator = ',';
+	private boolean _header = false;
+	private double _sampling = 1.0;
+	private long _seed = 0;
+	private int _maxRows = Integer.MAX_VALUE;
+	private int _clusters = 1;
+
+	// Labels in order of first appearance, the position of each label is its class ID
+	private ArrayList<byte[]> _labels;
+
+	private InputStream _input;
+	private byte[] _buffer;
+	private int _position;
+	private int _limit;
+	private boolean _eof;
+	private int _lineEnd;
+	private int _next;
+	private long _bytes;
+
+	private static final double[] _powers = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	public Instance readCsv(String path) throws IOException
+	{
+		open(path);
+
+		Random random = new Random(_seed);
+		PointStore store = null;
+		double[] values = null;
+		int row = 0;
+
+		if( _header )
+			nextLine();
+
+		while( store == null || store.size() < _maxRows )
+		{
+			if( nextLine() == false )
+				break;
+
+			++row;
+			if( _position == _lineEnd || (_sampling < 1 && random.nextDouble() >= _sampling) )
+				continue;
+
+			// The first data row fixes the number of columns
+			if( store == null )
+			{
+				int columns = 1;
+				for(int k=_position; k<_lineEnd; ++k) if( _buffer[k] == _separator )
+					++columns;
+
+				if( columns < 2 )
+					throw new RuntimeException("CSV row " + row + " has no coordinates!");
+
+				store = new PointStore(columns - 1, 1024);
+				values = new double[columns - 1];
+			}
+
+			int label = (_labelColumn < 0 ? values.length + 1 + _labelColumn : _labelColumn);
+			if( label < 0 || label > values.length )
+				throw new RuntimeException("CSV label column " + _labelColumn + " is outside the " + (values.length + 1) + " columns of row " + row + "!");
+
+			int classID = -1;
+			int coordinate = 0;
+			int column = 0;
+
+			for(int from=_position; from<=_lineEnd; ++column)
+			{
+				int to = from;
+				while( to < _lineEnd && _buffer[to] != _separator )
+					++to;
+
+				if( column == label )
+					classID = classOf(from, to);
+				else if( coordinate < values.length )
+					values[coordinate++] = parseDouble(from, to);
+				else
+					throw new RuntimeException("CSV row " + row + " has too many columns!");
+
+				from = to + 1;
+			}
+
+			if( coordinate != values.length || classID == -1 )
+				throw new RuntimeException("CSV row " + row + " has too few columns!");
+
+			store.add(store.size() + 1, classID, values, 0);
+		}
+
+		close();
+		return build(path, store == null ? new PointStore(0) : store);
+	}
+
+	public Instance readLibsvm(String path) throws IOException
+	{
+		open(path);
+
+		Random random = new Random(_seed);
+		int[] classes = new int[1024];
+		int[] rows = new int[1025];
+		int[] indexes = new int[1024];
+		double[] values = new double[1024];
+		int size = 0;
+		int entries = 0;
+		int dimension = 0;
+		int row = 0;
+
+		// Sparse rows are accumulated first, since the dimension is only known at the end
+		while( size < _maxRows && nextLine() )
+		{
+			++row;
+			int from = skipBlanks(_position);
+			if( from == _lineEnd || _buffer[from] == '#' || (_sampling < 1 && random.nextDouble() >= _sampling) )
+				continue;
+
+			int to = skipToken(from);
+
+			if( size == classes.length )
+			{
+				classes = Arrays.copyOf(classes, 2 * size);
+				rows = Arrays.copyOf(rows, 2 * size + 1);
+			}
+
+			classes[size] = classOf(from, to);
+
+			for(from=skipBlanks(to); from<_lineEnd && _buffer[from] != '#'; from=skipBlanks(to))
+			{
+				to = skipToken(from);
+
+				int colon = from;
+				while( colon < to && _buffer[colon] != ':' )
+					++colon;
+
+				if( colon == to )
+					throw new RuntimeException("LIBSVM row " + row + " has an invalid feature!");
+
+				int index = parseIndex(from, colon);
+				if( index < 1 )
+					throw new RuntimeException("LIBSVM row " + row + " has an invalid feature index: "
+							+ new String(_buffer, from, colon - from, StandardCharsets.US_ASCII));
+
+				if( entries == indexes.length )
+				{
+					indexes = Arrays.copyOf(indexes, 2 * entries);
+					values = Arrays.copyOf(values, 2 * entries);
+				}
+
+				indexes[entries] = index - 1;
+				values[entries++] = parseDouble(colon + 1, to);
+				dimension = Math.max(dimension, index);
+			}
+
+			rows[++size] = entries;
+		}
+
+		close();
+
+		PointStore store = new PointStore(dimension, Math.max(1, size));
+		double[] point = new double[dimension];
+
+		for(int i=0; i<size; ++i)
+		{
+			Arrays.fill(point, 0);
+			for(int k=rows[i]; k<rows[i+1]; ++k)
+				point[indexes[k]] = values[k];
+
+			store.add(i + 1, classes[i], point, 0);
+		}
+
+		return build(path, store);
+	}
+
+	private Instance build(String path, PointStore store)
+	{
+		return new Instance(Paths.get(path).getFileName().toString(), _labels.size(), _clusters, store);
+	}
+
+	private void open(String path) throws IOException
+	{
+		_labels = new ArrayList<byte[]>();
+		_input = new FileInputStream(path);
+		_buffer = new byte[1 << 16];
+		_position = 0;
+		_limit = 0;
+		_lineEnd = 0;
+		_next = 0;
+		_eof = false;
+		_bytes = 0;
+	}
+
+	private void close() throws IOException
+	{
+		_input.close();
+		_input = null;
+		_buffer = null;
+	}
+
+	// Moves to the next line, leaving it in [_position, _lineEnd) of the buffer
+	private boolean nextLine() throws IOException
+	{
+		_position = _next;
+
+		int end = _position;
+		while( true )
+		{
+			while( end < _limit && _buffer[end] != '\n' )
+				++end;
+
+			if( end < _limit || _eof )
+				break;
+
+			// The line continues past the buffer: compact, grow if needed, and refill
+			int length = _limit - _position;
+			if( length == _buffer.length )
+				_buffer = Arrays.copyOf(_buffer, 2 * _buffer.length);
+			else
+				System.arraycopy(_buffer, _position, _buffer, 0, length);
+
+			end -= _position;
+			_position = 0;
+			_limit = length;
+
+			int read = _input.read(_buffer, _limit, _buffer.length - _limit);
+			if( read == -1 )
+			{
+				_eof = true;
+			}
+			else
+			{
+				_limit += read;
+				_bytes += read;
+			}
+		}
+
+		if( _position >= _limit )
+			return false;
+
+		_next = Math.min(end + 1, _limit);
+		_lineEnd = end;
+
+		if( _lineEnd > _position && _buffer[_lineEnd - 1] == '\r' )
+			--_lineEnd;
+
+		return true;
+	}
+
+	private int skipBlanks(int from)
+	{
+		while( from < _lineEnd && (_buffer[from] == ' ' || _buffer[from] == '\t') )
+			++from;
+
+		return from;
+	}
+
+	private int skipToken(int from)
+	{
+		while( from < _lineEnd && _buffer[from] != ' ' && _buffer[from] != '\t' )
+			++from;
+
+		return from;
+	}
+
+	private int classOf(int from, int to)
+	{
+		while( from < to && (_buffer[from] == ' ' || _buffer[from] == '"') )
+			++from;
+		while( to > from && (_buffer[to - 1] == ' ' || _buffer[to - 1] == '"') )
+			--to;
+
+		for(int i=0; i<_labels.size(); ++i)
+		{
+			byte[] label = _labels.get(i);
+			if( label.length == to - from && Arrays.equals(label, 0, label.length, _buffer, from, to) )
+				return i;
+		}
+
+		_labels.add(Arrays.copyOfRange(_buffer, from, to));
+		return _labels.size() - 1;
+	}
+
+	// Positive decimal integer of at most 9 digits, -1 for anything else
+	private int parseIndex(int from, int to)
+	{
+		if( from == to || to - from > 9 )
+			return -1;
+
+		int ret = 0;
+		for(int k=from; k<to; ++k)
+		{
+			if( _buffer[k] < '0' || _buffer[k] > '9' )
+				return -1;
+
+			ret = 10 * ret + (_buffer[k] - '0');
+		}
+
+		return ret;
+	}
+
+	// Exact when the digits form a decimal mantissa below 2^53, about 15 significant digits, and the decimal exponent is
+	// within 22, since both are then exact doubles and one rounding remains; otherwise delegates to Double.parseDouble
+	private double parseDouble(int from, int to)
+	{
+		while( from < to && _buffer[from] == ' ' )
+			++from;
+		while( to > from && _buffer[to - 1] == ' ' )
+			--to;
+
+		if( from == to )
+			throw new RuntimeException("Empty numeric field!");
+
+		int k = from;
+		boolean negative = _buffer[k] == '-';
+		if( _buffer[k] == '-' || _buffer[k] == '+' )
+			++k;
+
+		long mantissa = 0;
+		int exponent = 0;
+		boolean digits = false;
+		boolean exact = true;
+
+		for(; k<to && _buffer[k] >= '0' && _buffer[k] <= '9'; ++k, digits = true)
+		{
+			if( mantissa < (1L << 49) )
+				mantissa = 10 * mantissa + (_buffer[k] - '0');
+			else
+				exact = false;
+		}
+
+		if( k < to && _buffer[k] == '.' )
+		{
+			for(++k; k<to && _buffer[k] >= '0' && _buffer[k] <= '9'; ++k, digits = true)
+			{
+				if( mantissa < (1L << 49) )
+				{
+					mantissa = 10 * mantissa + (_buffer[k] - '0');
+					--exponent;
+				}
+				else if( _buffer[k] != '0' )
+				{
+					exact = false;
+				}
+			}
+		}
+
+		if( digits && k < to && (_buffer[k] == 'e' || _buffer[k] == 'E') )
+		{
+			int sign = 1;
+			int value = 0;
+
+			if( ++k < to && (_buffer[k] == '-' || _buffer[k] == '+') )
+				sign = _buffer[k++] == '-' ? -1 : 1;
+
+			int start = k;
+			for(; k<to && _buffer[k] >= '0' && _buffer[k] <= '9' && value < 100000; ++k)
+				value = 10 * value + (_buffer[k] - '0');
+
+			exponent += sign * value;
+			digits = k > start;
+		}
+
+		if( digits == false || k != to || exact == false || exponent < -22 || exponent > 22 )
+			return Double.parseDouble(new String(_buffer, from, to - from, StandardCharsets.US_ASCII));
+
+		double ret = exponent < 0 ? mantissa / _powers[-exponent] : mantissa * _powers[exponent];
+		return negative ? -ret : ret;
+	}
+
+	public ArrayList<String> getLabels()
+	{
+		ArrayList<String> ret = new ArrayList<String>();
+
+		for(byte[] label: _labels)
+			ret.add(new String(label, StandardCharsets.UTF_8));
+
+		return ret;
+	}
+
+	// Bytes read by the last import
+	public long getBytes()
+	{
+		return _bytes;
+	}
+
+	// Column holding the label, negative values count from the end (-1 is the last column)
+	public void setLabelColumn(int column)
+	{
+		_labelColumn = column;
+	}
+
+	public void setSeparator(char separator)
+	{
+		_separator = (byte)separator;
+	}
+
+	public void setHeader(boolean header)
+	{
+		_header = header;
+	}
+
+	// Keeps each row with the given probability
+	public void setSampling(double rate, long seed)
+	{
+		_sampling = rate;
+		_seed = seed;
+	}
+
+	public void setMaxRows(int rows)
+	{
+		_maxRows = rows;
+	}
+
+	public void setClusters(int clustersInEachClass)
+	{
+		_clusters = clustersInEachClass;
+	}
+}
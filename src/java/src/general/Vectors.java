@@ -0,0 +1,154 @@
+package general;
+
+// Allocation-free kernels over raw coordinate arrays: a vector is a block of dimension values starting at an offset,
+// either inside a PointStore coordinate block or inside the values of a Point.
+// Distances and box containment go through Kernels, scalar by default or SIMD with setSimd(true) or -Dvectors.simd=true
+public final class Vectors
+{
+	private static final Kernels _scalar = new ScalarKernels();
+	// Read on every call, also from pool threads, which must see a selection made before the run
+	private static volatile Kernels _kernels = _scalar;
+
+	static
+	{
+		if( Boolean.getBoolean("vectors.simd") )
+			setSimd(true);
+	}
+
+	private Vectors()
+	{
+	}
+
+	private static class ScalarKernels implements Kernels
+	{
+		@Override
+		public double squaredDistance(double[] a, int offsetA, double[] b, int offsetB, int dimension)
+		{
+			double sum = 0;
+			for(int t=0; t<dimension; ++t)
+			{
+				double diff = a[offsetA + t] - b[offsetB + t];
+				sum += diff * diff;
+			}
+
+			return sum;
+		}
+
+		@Override
+		public void squaredDistances(double[] point, int offset, double[] others, int count, int dimension, double[] target)
+		{
+			for(int k=0; k<count; ++k)
+				target[k] = squaredDistance(point, offset, others, k * dimension, dimension);
+		}
+
+		@Override
+		public boolean inside(double[] min, double[] max, double[] x, int offsetX, int dimension)
+		{
+			for(int t=0; t<dimension; ++t)
+			{
+				if( min[t] > x[offsetX + t] || max[t] < x[offsetX + t] )
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public int countInside(double[] min, double[] max, double[] coordinates, int[] indexes, int from, int to, int dimension)
+		{
+			int ret = 0;
+			for(int k=from; k<to; ++k) if( inside(min, max, coordinates, indexes[k] * dimension, dimension) )
+				++ret;
+
+			return ret;
+		}
+	}
+
+	// Switches to the Vector API kernels, falling back to the scalar ones when jdk.incubator.vector is not available;
+	// returns whether the SIMD kernels are in use. Meant to be called before a run, not while kernels are in use
+	public static synchronized boolean setSimd(boolean simd)
+	{
+		Kernels kernels = _scalar;
+
+		if( simd )
+		{
+			try
+			{
+				// Loaded by name, so this package also compiles and runs without the incubator module
+				kernels = (Kernels)Class.forName("general.SimdKernels").getDeclaredConstructor().newInstance();
+			}
+			catch(ReflectiveOperationException | LinkageError e)
+			{
+				kernels = _scalar;
+			}
+		}
+
+		// Published once fully built, callers never see an intermediate selection
+		_kernels = kernels;
+		return kernels != _scalar;
+	}
+
+	public static boolean isSimd()
+	{
+		return _kernels != _scalar;
+	}
+
+	public static double squaredDistance(double[] a, int offsetA, double[] b, int offsetB, int dimension)
+	{
+		return _kernels.squaredDistance(a, offsetA, b, offsetB, dimension);
+	}
+
+	public static void squaredDistances(double[] point, int offset, double[] others, int count, int dimension, double[] target)
+	{
+		_kernels.squaredDistances(point, offset, others, count, dimension, target);
+	}
+
+	public static boolean inside(double[] min, double[] max, double[] x, int offsetX, int dimension)
+	{
+		return _kernels.inside(min, max, x, offsetX, dimension);
+	}
+
+	public static int countInside(double[] min, double[] max, double[] coordinates, int[] indexes, int from, int to, int dimension)
+	{
+		return _kernels.countInside(min, max, coordinates, indexes, from, to, dimension);
+	}
+
+	public static double distance(double[] a, int offsetA, double[] b, int offsetB, int dimension)
+	{
+		return Math.sqrt(squaredDistance(a, offsetA, b, offsetB, dimension));
+	}
+
+	// y += alpha x
+	public static void axpy(double alpha, double[] x, int offsetX, double[] y, int offsetY, int dimension)
+	{
+		for(int t=0; t<dimension; ++t)
+			y[offsetY + t] += alpha * x[offsetX + t];
+	}
+
+	// x += factor (x - from), moves x away from the other point
+	public static void escape(double[] x, int offsetX, double[] from, int offsetFrom, double factor, int dimension)
+	{
+		for(int t=0; t<dimension; ++t)
+			x[offsetX + t] += factor * (x[offsetX + t] - from[offsetFrom + t]);
+	}
+
+	public static void scale(double factor, double[] x, int offsetX, int dimension)
+	{
+		for(int t=0; t<dimension; ++t)
+			x[offsetX + t] *= factor;
+	}
+
+	// target = min(target, x), coordinate-wise
+	public static void min(double[] target, double[] x, int offsetX, int dimension)
+	{
+		for(int t=0; t<dimension; ++t)
+			target[t] = Math.min(target[t], x[offsetX + t]);
+	}
+
+	// target = max(target, x), coordinate-wise
+	public static void max(double[] target, double[] x, int offsetX, int dimension)
+	{
+		for(int t=0; t<dimension; ++t)
+			target[t] = Math.max(target[t], x[offsetX + t]);
+	}
+}
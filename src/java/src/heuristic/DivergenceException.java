@@ -0,0 +1,12 @@
+package heuristic;
+
+// Thrown by the heuristic when the centroids leave the finite range, which happens on some large instances
+public class DivergenceException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public DivergenceException(String message)
+	{
+		super(message);
+	}
+}
@@ -2,21 +2,58 @@ package heuristic;
 
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 import general.Cluster;
 import general.Instance;
 import general.Point;
+import general.PointStore;
 import general.Solution;
+import general.SolutionListener;
+import general.Vectors;
 
 public class Heuristic
 {
+	// Why the last run stopped; only Converged means the centroids settled
+	public enum Status { Converged, Cancelled, TimeLimit, IterationLimit }
+	
 	private Instance _instance;
 	private Solution _solution;
 	private ArrayList<Point> _centroids;
+	private int[] _assignment;
+	
+	// Non-null centroids grouped by class, with their coordinates in contiguous arrays
+	private int[][] _classCentroids;
+	private double[][] _classCoordinates;
+	
+	// Hamerly-style bounds: distance to the assigned centroid and lower bound to any other one
+	private boolean _pruning = false;
+	private boolean _bounded;
+	private double[] _upper;
+	private double[] _lower;
+	private double[] _drift;
+	private double[] _maxDrift;
+	private double[] _secondDrift;
+	private int[] _maxDriftIndex;
+	
+	// Points are assigned in fixed-size blocks, so results do not depend on the number of threads
+	private static final int _blockSize = 4096;
+	private boolean _parallel = true;
+	private boolean _verbose = true;
+	private long _seed = 0;
+	private int _maxIterations = Integer.MAX_VALUE;
 
 	private long _start;
+	private long _elapsed;
 	private int _iterations;
 	
+	// Anytime use: improving solutions are reported after each iteration until convergence, cancellation or the deadline
+	private SolutionListener _listener;
+	private int _best;
+	private long _deadline = Long.MAX_VALUE;
+	private volatile boolean _cancelled = false;
+	private Status _status;
+	
 	public Heuristic(Instance instance)
 	{
 		_instance = instance;
@@ -24,25 +61,71 @@ public class Heuristic
 	
 	public Solution run()
 	{
+		// Every point goes to a centroid of its class, so a class with points needs a cluster
+		PointStore store = _instance.getStore();
+		for(int i=0; i<store.size(); ++i) if( _instance.getClusters(store.getClassID(i)) == 0 )
+			throw new RuntimeException("Class " + store.getClassID(i) + " has points but no clusters!");
+		
 		_solution = null;
+		_assignment = new int[_instance.getPoints()];
+		_upper = _pruning ? new double[_instance.getPoints()] : null;
+		_lower = _pruning ? new double[_instance.getPoints()] : null;
+		_bounded = false;
 		_centroids = initialCentroids();
+		_drift = new double[_centroids.size()];
 		_start = System.currentTimeMillis();
 		_iterations = 1;
 		
+		_best = Integer.MAX_VALUE;
+		
 		reconstructClusters();
-		while( recalculateCentroids() == true )
+		report();
+		
+		while( true )
 		{
-			reconstructClusters();
-			_iterations++;
+			if( _cancelled )
+				_status = Status.Cancelled;
+			else if( System.currentTimeMillis() >= _deadline )
+				_status = Status.TimeLimit;
+			else if( _iterations >= _maxIterations )
+				_status = Status.IterationLimit;
+			else if( recalculateCentroids() == false )
+				_status = Status.Converged;
+			else
+			{
+				reconstructClusters();
+				report();
+				_iterations++;
+				continue;
+			}
+			
+			break;
 		}
 		
-		showSummary();
+		_elapsed = System.currentTimeMillis() - _start;
+		
+		if( _verbose == true )
+			showSummary();
+		
 		return _solution;
 	}
 	
+	private void report()
+	{
+		if( _listener == null )
+			return;
+		
+		int objective = _solution.misclassified(_instance);
+		if( objective < _best )
+		{
+			_best = objective;
+			_listener.improved(_solution.snapshot(), objective, 0, objective > 0 ? 1 : 0, (System.currentTimeMillis() - _start) / 1000.0);
+		}
+	}
+	
 	private ArrayList<Point> initialCentroids()
 	{
-		Random random = new Random(0);
+		Random random = new Random(_seed);
 		ArrayList<Point> ret = new ArrayList<Point>();
 		
 		for(int i=0; i<_instance.getClasses(); ++i)
@@ -54,25 +137,143 @@ public class Heuristic
 	
 	private void reconstructClusters()
 	{
-		_solution = Solution.withEmptyClusters(_instance, _centroids.size());
+		groupCentroids();
 		
-		for(Point point: _instance.asList())
-			_solution.getCluster(closestCentroid(point)).add(point);
+		int blocks = (_instance.getPoints() + _blockSize - 1) / _blockSize;
+		IntStream range = _parallel ? IntStream.range(0, blocks).parallel() : IntStream.range(0, blocks);
+		range.forEach(b -> assignBlock(b));
+		_bounded = _pruning;
+		
+		if( _solution == null )
+			_solution = Solution.withEmptyClusters(_instance, _centroids.size());
+		
+		for(Cluster cluster: _solution.getClusters())
+			cluster.clear();
+		
+		// Merged sequentially in point order, so the clusters are identical to a sequential run
+		for(int i=0; i<_instance.getPoints(); ++i)
+		{
+			// Centroids with non-finite coordinates leave points without a closest one
+			if( _assignment[i] == -1 )
+				throw new DivergenceException("Centroids diverged at iteration " + _iterations);
+			
+			_solution.getCluster(_assignment[i]).add(_instance, i);
+		}
 	}
 	
-	private int closestCentroid(Point point)
+	private void assignBlock(int block)
 	{
+		int end = Math.min(_instance.getPoints(), (block + 1) * _blockSize);
+		
+		// Distances to the centroids of the class of each point, reused across the block
+		double[] distances = new double[_centroids.size()];
+		
+		for(int i=block * _blockSize; i<end; ++i)
+			_assignment[i] = closestCentroid(i, distances);
+	}
+	
+	private void groupCentroids()
+	{
+		int d = _instance.getDimension();
+		
+		_classCentroids = new int[_instance.getClasses()][];
+		_classCoordinates = new double[_instance.getClasses()][];
+		_maxDrift = new double[_instance.getClasses()];
+		_secondDrift = new double[_instance.getClasses()];
+		_maxDriftIndex = new int[_instance.getClasses()];
+		
+		for(int c=0; c<_instance.getClasses(); ++c)
+		{
+			final int classID = c;
+			int[] members = IntStream.range(0, _centroids.size()).filter(i -> _centroids.get(i) != null && _centroids.get(i).getClassID() == classID).toArray();
+			double[] coordinates = new double[members.length * d];
+			
+			_maxDriftIndex[c] = -1;
+			
+			for(int k=0; k<members.length; ++k)
+			{
+				for(int t=0; t<d; ++t)
+					coordinates[k * d + t] = _centroids.get(members[k]).get(t);
+				
+				double drift = _drift[members[k]];
+				if( drift > _maxDrift[c] )
+				{
+					_secondDrift[c] = _maxDrift[c];
+					_maxDrift[c] = drift;
+					_maxDriftIndex[c] = members[k];
+				}
+				else if( drift > _secondDrift[c] )
+				{
+					_secondDrift[c] = drift;
+				}
+			}
+			
+			_classCentroids[c] = members;
+			_classCoordinates[c] = coordinates;
+		}
+	}
+	
+	private int closestCentroid(int index, double[] distances)
+	{
+		PointStore store = _instance.getStore();
+		int classID = store.getClassID(index);
+		int[] members = _classCentroids[classID];
+		double[] coordinates = _classCoordinates[classID];
+		double[] values = store.getCoordinates();
+		int offset = store.offset(index);
+		int d = store.getDimension();
+		
+		if( _pruning && _bounded && _centroids.get(_assignment[index]) != null )
+		{
+			int current = _assignment[index];
+			double upper = _upper[index] + _drift[current];
+			double lower = _lower[index] - (current == _maxDriftIndex[classID] ? _secondDrift[classID] : _maxDrift[classID]);
+			
+			if( upper < lower - 1e-9 * (1 + upper) )
+			{
+				_upper[index] = upper;
+				_lower[index] = lower;
+				return current;
+			}
+			
+			int k = 0;
+			while( members[k] != current )
+				++k;
+			
+			upper = Math.sqrt(Vectors.squaredDistance(values, offset, coordinates, k * d, d));
+			if( upper < lower - 1e-9 * (1 + upper) )
+			{
+				_upper[index] = upper;
+				_lower[index] = lower;
+				return current;
+			}
+		}
+		
 		int bestIndex = -1;
 		double bestDistance = Double.POSITIVE_INFINITY;
+		double secondDistance = Double.POSITIVE_INFINITY;
+		
+		Vectors.squaredDistances(values, offset, coordinates, members.length, d, distances);
 		
-		for(int i=0; i<_centroids.size(); ++i) if( _centroids.get(i) != null && _centroids.get(i).getClassID() == point.getClassID() )
+		for(int k=0; k<members.length; ++k)
 		{
-			double distance = point.distance(_centroids.get(i));
+			double distance = distances[k];
 			if( distance < bestDistance )
 			{
-				bestIndex = i;
+				bestIndex = members[k];
+				secondDistance = bestDistance;
 				bestDistance = distance;
 			}
+			else if( distance < secondDistance )
+			{
+				secondDistance = distance;
+			}
+		}
+		
+		if( _pruning )
+		{
+			_upper[index] = Math.sqrt(bestDistance);
+			_lower[index] = Math.sqrt(secondDistance);
 		}
 		
 		return bestIndex;
@@ -80,6 +281,9 @@ public class Heuristic
 	
 	private boolean recalculateCentroids()
 	{
+		PointStore store = _instance.getStore();
+		double[] values = store.getCoordinates();
+		int d = store.getDimension();
 		boolean ret = false;
 		for(int i=0; i<_centroids.size(); ++i) if( _centroids.get(i) != null || _solution.getCluster(i).size() > 0 )
 		{
@@ -87,18 +291,25 @@ public class Heuristic
 			Point newCentroid = cluster.centroid();
 			double radius = cluster.distanceToBorder(newCentroid);
 			
-			for(Point foreign: cluster.misclassified(_instance))
+			// Escapes in place, reading the foreign points straight from the store
+			if( newCentroid != null )
+			for(int foreign: cluster.misclassifiedIndexes(_instance))
 			{
-				double dist = cluster.distanceToBorder(foreign);
+				double dist = cluster.distanceToBorder(values, store.offset(foreign));
 				double factor = Math.exp(-dist * dist / radius / radius) / 10;
-				newCentroid.escapeFrom(foreign, factor);
+				Vectors.escape(newCentroid.getValues(), 0, values, store.offset(foreign), factor, d);
 			}
 			
 			if( _centroids.get(i) == null || newCentroid == null || _centroids.get(i).distance(newCentroid) > 0.001 )
 			{
+				_drift[i] = _centroids.get(i) == null || newCentroid == null ? Double.POSITIVE_INFINITY : _centroids.get(i).distance(newCentroid);
 				_centroids.set(i, newCentroid);
 				ret = true;
 			}
+			else
+			{
+				_drift[i] = 0;
+			}
 		}
 		
 		return ret;
@@ -106,13 +317,84 @@ public class Heuristic
 	
 	private void showSummary()
 	{
-		System.out.print(_instance.getName() + " | Heur | Feasible | ");
+		System.out.print(_instance.getName() + " | Heur | " + (_status == Status.Converged ? "Feasible" : _status) + " | ");
 		System.out.print("Obj: " + _solution.misclassified(_instance) + " | ");
-		System.out.print(String.format("%6.2f", (System.currentTimeMillis() - _start) / 1000.0) + " sec. | ");
+		System.out.print(String.format("%6.2f", _elapsed / 1000.0) + " sec. | ");
 		System.out.print(_iterations + " its | | | ");
 		System.out.println();
 	}
 	
+	public void setVerbose(boolean verbose)
+	{
+		_verbose = verbose;
+	}
+	
+	public void setParallel(boolean parallel)
+	{
+		_parallel = parallel;
+	}
+	
+	// Skips distance computations using bounds carried across iterations
+	public void setPruning(boolean pruning)
+	{
+		_pruning = pruning;
+	}
+	
+	// Seed of the random initial centroids
+	public void setSeed(long seed)
+	{
+		_seed = seed;
+	}
+	
+	// Some starting centroids make the heuristic cycle, this bounds the number of reconstructions
+	public void setMaxIterations(int maxIterations)
+	{
+		_maxIterations = maxIterations;
+	}
+	
+	// Receives each improving solution, with a trivial bound of zero
+	public void setListener(SolutionListener listener)
+	{
+		_listener = listener;
+	}
+	
+	// Absolute time, as given by System.currentTimeMillis(), after which no further iteration starts
+	public void setDeadline(long deadline)
+	{
+		_deadline = deadline;
+	}
+	
+	// Stops the run in progress after the current iteration, or the next run if none has started, may be called from
+	// any thread
+	public void cancel()
+	{
+		_cancelled = true;
+	}
+	
+	// Clears a cancellation before the heuristic is run again; run() itself leaves it alone, so that a cancel() made
+	// while the run is being started is not lost
+	public void reset()
+	{
+		_cancelled = false;
+	}
+	
+	// Status of the last call to run(), the solution of a stopped run is the last reconstruction
+	public Status getStatus()
+	{
+		return _status;
+	}
+	
+	public int getIterations()
+	{
+		return _iterations;
+	}
+	
+	// Running time of the last call to run(), in seconds
+	public double getElapsedTime()
+	{
+		return _elapsed / 1000.0;
+	}
+	
 	public ArrayList<Point> getCentroids()
 	{
 		return _centroids;
@@ -0,0 +1,231 @@
+package heuristic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import general.Instance;
+import general.Solution;
+
+// Runs the heuristic from several random initial centroids on a thread pool and keeps the best solution.
+// Restarts are evaluated in seed order, so the result does not depend on the number of threads.
+public class MultiStart
+{
+	private Instance _instance;
+	private Solution _best;
+	private int _bestObjective;
+	private long _bestSeed;
+
+	private int _restarts = 16;
+	private int _patience = Integer.MAX_VALUE;
+	private int _maxIterations = 1000;
+	private int _threads = Runtime.getRuntime().availableProcessors();
+	private long _firstSeed = 0;
+	private long _deadline = Long.MAX_VALUE;
+	private boolean _verbose = true;
+
+	// Best objective after each evaluated restart
+	private int[] _convergence;
+	private int _failures;
+	private long _elapsed;
+
+	public MultiStart(Instance instance)
+	{
+		_instance = instance;
+	}
+
+	public Solution run()
+	{
+		long start = System.currentTimeMillis();
+
+		_best = null;
+		_bestObjective = Integer.MAX_VALUE;
+		_convergence = new int[0];
+		_failures = 0;
+
+		// The restarts share the instance, its spatial indexes are built once before they start
+		for(int c=0; c<_instance.getClasses(); ++c)
+			_instance.getIndex(c);
+
+		ExecutorService executor = Executors.newFixedThreadPool(_threads);
+		List<Heuristic> heuristics = new ArrayList<Heuristic>();
+		List<Future<Solution>> futures = new ArrayList<Future<Solution>>();
+
+		for(int k=0; k<_restarts; ++k)
+		{
+			Heuristic heuristic = new Heuristic(_instance);
+			heuristic.setSeed(_firstSeed + k);
+			heuristic.setVerbose(false);
+			heuristic.setParallel(false);
+			heuristic.setMaxIterations(_maxIterations);
+			heuristic.setDeadline(_deadline);
+			heuristic.reset();
+
+			heuristics.add(heuristic);
+			futures.add(executor.submit(() -> heuristic.run()));
+		}
+
+		executor.shutdown();
+
+		List<Integer> convergence = new ArrayList<Integer>();
+
+		try
+		{
+			evaluate(futures, convergence);
+		}
+		finally
+		{
+			for(int k=0; k<_restarts; ++k)
+			{
+				futures.get(k).cancel(false);
+				heuristics.get(k).cancel();
+			}
+
+			// Restarts still running stop after their current iteration, none outlives run()
+			awaitTermination(executor);
+		}
+
+		_convergence = convergence.stream().mapToInt(Integer::intValue).toArray();
+		_elapsed = System.currentTimeMillis() - start;
+
+		if( _verbose == true )
+			showSummary();
+
+		return _best;
+	}
+
+	private static void awaitTermination(ExecutorService executor)
+	{
+		try
+		{
+			while( executor.awaitTermination(1, TimeUnit.SECONDS) == false )
+				;
+		}
+		catch(InterruptedException e)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Takes the restarts in seed order until the patience or the time runs out
+	private void evaluate(List<Future<Solution>> futures, List<Integer> convergence)
+	{
+		int lastImprovement = 0;
+
+		for(int k=0; k<_restarts; ++k)
+		{
+			try
+			{
+				Solution solution = futures.get(k).get();
+				int objective = solution.misclassified(_instance);
+
+				if( objective < _bestObjective )
+				{
+					_best = solution;
+					_bestObjective = objective;
+					_bestSeed = _firstSeed + k;
+					lastImprovement = k;
+				}
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch(ExecutionException e)
+			{
+				// The centroids can diverge on large instances, such restarts are skipped; anything else is a bug
+				if( e.getCause() instanceof DivergenceException == false )
+					throw new RuntimeException("Restart with seed " + (_firstSeed + k) + " failed: " + e.getCause(), e.getCause());
+
+				_failures++;
+			}
+
+			convergence.add(_bestObjective);
+
+			// Stops once the last restarts brought no improvement, or when the time is over
+			if( k - lastImprovement >= _patience || System.currentTimeMillis() >= _deadline )
+				break;
+		}
+	}
+
+	private void showSummary()
+	{
+		System.out.print(_instance.getName() + " | Multi | " + (_best != null ? "Feasible" : "Unknown") + " | ");
+		System.out.print("Obj: " + (_best != null ? _bestObjective : "-") + " | ");
+		System.out.print(String.format("%6.2f", _elapsed / 1000.0) + " sec. | ");
+		System.out.print(_convergence.length + " starts | ");
+		System.out.print("seed " + _bestSeed + " | ");
+		System.out.print(_failures + " failed | ");
+
+		// Best objective after 1, 2, 4, ... restarts
+		for(int k=1; k<=_convergence.length; k*=2)
+			System.out.print(k + ":" + _convergence[k-1] + " ");
+
+		System.out.println("|");
+	}
+
+	public void setRestarts(int restarts)
+	{
+		_restarts = restarts;
+	}
+
+	// Stops after this many consecutive restarts without improvement
+	public void setPatience(int patience)
+	{
+		_patience = patience;
+	}
+
+	// Bounds each restart, since some seeds make the heuristic cycle
+	public void setMaxIterations(int maxIterations)
+	{
+		_maxIterations = maxIterations;
+	}
+
+	public void setThreads(int threads)
+	{
+		_threads = threads;
+	}
+
+	// Restart k uses seed firstSeed + k
+	public void setFirstSeed(long seed)
+	{
+		_firstSeed = seed;
+	}
+
+	// Absolute time, as given by System.currentTimeMillis(), after which no further restart is evaluated
+	public void setDeadline(long deadline)
+	{
+		_deadline = deadline;
+	}
+
+	public void setVerbose(boolean verbose)
+	{
+		_verbose = verbose;
+	}
+
+	public int[] getConvergence()
+	{
+		return _convergence;
+	}
+
+	public int getObjective()
+	{
+		return _bestObjective;
+	}
+
+	public long getBestSeed()
+	{
+		return _bestSeed;
+	}
+
+	public double getElapsedTime()
+	{
+		return _elapsed / 1000.0;
+	}
+}
@@ -0,0 +1,480 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Pure Java MIP backend: depth-first branch and bound over a bounded dual simplex.
+// Intended for small models and for machines without a CPLEX license; every variable needs finite bounds.
+public class BranchAndBoundBackend implements MipBackend
+{
+	private static final double _integrality = 1e-6;
+
+	private int _count;
+	private double[] _lower;
+	private double[] _upper;
+	private double[] _cost;
+	private boolean[] _integer;
+
+	private ArrayList<int[]> _rowIndexes;
+	private ArrayList<double[]> _rowCoefficients;
+	private ArrayList<double[]> _rowBounds;
+	private int _eagerRows;
+
+	private double _timeLimit = Double.POSITIVE_INFINITY;
+	private volatile boolean _aborted = false;
+	private Listener _listener;
+	private boolean _verbose = true;
+
+	private double[] _start;
+
+	private Status _status = Status.Unknown;
+	private double[] _incumbent;
+	private double _incumbentValue;
+	private double _bound;
+	private long _nodes;
+	private int _lazyAdded;
+
+	// Nodes dropped because their LP failed even on a rebuilt tableau or their integer solution did not round to a
+	// feasible one, the search is then no proof of optimality
+	private long _unsolved;
+
+	// Branching decisions are kept as a chain of bound changes up to the root
+	private static class Node
+	{
+		private Node _parent;
+		private int _variable;
+		private double _lower;
+		private double _upper;
+		private double _bound;
+
+		private Node(Node parent, int variable, double lower, double upper, double bound)
+		{
+			_parent = parent;
+			_variable = variable;
+			_lower = lower;
+			_upper = upper;
+			_bound = bound;
+		}
+	}
+
+	public BranchAndBoundBackend()
+	{
+		_count = 0;
+		_lower = new double[1024];
+		_upper = new double[1024];
+		_cost = new double[1024];
+		_integer = new boolean[1024];
+		_rowIndexes = new ArrayList<int[]>();
+		_rowCoefficients = new ArrayList<double[]>();
+		_rowBounds = new ArrayList<double[]>();
+	}
+
+	@Override
+	public int addVariables(int count, double[] lower, double[] upper, boolean integer, String[] names)
+	{
+		if( _count + count > _lower.length )
+		{
+			int capacity = Math.max(2 * _lower.length, _count + count);
+			_lower = Arrays.copyOf(_lower, capacity);
+			_upper = Arrays.copyOf(_upper, capacity);
+			_cost = Arrays.copyOf(_cost, capacity);
+			_integer = Arrays.copyOf(_integer, capacity);
+		}
+
+		for(int k=0; k<count; ++k)
+		{
+			_lower[_count + k] = lower[k];
+			_upper[_count + k] = upper[k];
+			_integer[_count + k] = integer;
+		}
+
+		_count += count;
+		return _count - count;
+	}
+
+	// Lazy rows are kept after the eager ones
+	@Override
+	public void addConstraint(int[] indexes, double[] coefficients, double lower, double upper, String name)
+	{
+		_rowIndexes.add(_eagerRows, indexes.clone());
+		_rowCoefficients.add(_eagerRows, coefficients.clone());
+		_rowBounds.add(_eagerRows, new double[] { lower, upper });
+		_eagerRows++;
+	}
+
+	@Override
+	public void addLazyConstraint(int[] indexes, double[] coefficients, double lower, double upper)
+	{
+		_rowIndexes.add(indexes.clone());
+		_rowCoefficients.add(coefficients.clone());
+		_rowBounds.add(new double[] { lower, upper });
+	}
+
+	@Override
+	public void setObjective(int[] indexes, double[] coefficients)
+	{
+		Arrays.fill(_cost, 0);
+
+		for(int k=0; k<indexes.length; ++k)
+			_cost[indexes[k]] += coefficients[k];
+	}
+
+	@Override
+	public void addMipStart(int[] indexes, double[] values)
+	{
+		_start = new double[_count];
+		Arrays.fill(_start, Double.NaN);
+
+		for(int k=0; k<indexes.length; ++k)
+			_start[indexes[k]] = values[k];
+	}
+
+	// Checks bounds, integrality and rows; the start must give a value to every variable
+	private boolean isFeasible(double[] values)
+	{
+		for(int j=0; j<_count; ++j)
+		{
+			if( Double.isNaN(values[j]) || values[j] < _lower[j] - _integrality || values[j] > _upper[j] + _integrality )
+				return false;
+
+			if( _integer[j] && Math.abs(values[j] - Math.rint(values[j])) > _integrality )
+				return false;
+		}
+
+		for(int i=0; i<_rowIndexes.size(); ++i)
+		{
+			int[] indexes = _rowIndexes.get(i);
+			double[] coefficients = _rowCoefficients.get(i);
+			double activity = 0;
+
+			for(int k=0; k<indexes.length; ++k)
+				activity += coefficients[k] * values[indexes[k]];
+
+			double tolerance = _integrality * Math.max(1, Math.abs(activity));
+			if( activity < _rowBounds.get(i)[0] - tolerance || activity > _rowBounds.get(i)[1] + tolerance )
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public void setTimeLimit(double seconds)
+	{
+		_timeLimit = seconds;
+	}
+
+	@Override
+	public void setVerbose(boolean verbose)
+	{
+		_verbose = verbose;
+	}
+
+	@Override
+	public void setListener(Listener listener)
+	{
+		_listener = listener;
+	}
+
+	@Override
+	public void abort()
+	{
+		_aborted = true;
+	}
+
+	@Override
+	public Status solve()
+	{
+		long start = System.currentTimeMillis();
+		long deadline = Double.isInfinite(_timeLimit) ? Long.MAX_VALUE : start + (long)(1000 * _timeLimit);
+
+		boolean[] lazy = new boolean[_rowIndexes.size()];
+		Arrays.fill(lazy, _eagerRows, lazy.length, true);
+
+		DualSimplex lp = createLp(lazy);
+
+		// With integer costs on integer variables only, any better solution improves by at least 1
+		boolean integral = true;
+		for(int j=0; j<_count; ++j)
+			integral &= _cost[j] == 0 || (_integer[j] && _cost[j] == Math.rint(_cost[j]));
+
+		_incumbent = null;
+		_incumbentValue = Double.POSITIVE_INFINITY;
+		_nodes = 0;
+		_lazyAdded = 0;
+		_unsolved = 0;
+		double unsolvedBound = Double.POSITIVE_INFINITY;
+
+		if( _start != null && _start.length == _count && isFeasible(_start) )
+		{
+			_incumbent = _start.clone();
+			_incumbentValue = 0;
+
+			for(int j=0; j<_count; ++j)
+				_incumbentValue += _cost[j] * _incumbent[j];
+
+			if( _verbose )
+				System.out.println("B&B: MIP start accepted with objective " + _incumbentValue);
+		}
+		else if( _start != null && _verbose )
+		{
+			System.out.println("B&B: MIP start is infeasible, ignored");
+		}
+
+		ArrayDeque<Node> open = new ArrayDeque<Node>();
+		open.push(new Node(null, -1, 0, 0, Double.NEGATIVE_INFINITY));
+
+		if( _incumbent != null && _listener != null )
+			_listener.incumbent(_incumbentValue, Double.NEGATIVE_INFINITY, _incumbent.clone());
+
+		boolean stopped = false;
+
+		// Node whose LP gained lazy rows, solved again before anything else and before any pruning by bound
+		Node retry = null;
+
+		while( retry != null || open.isEmpty() == false )
+		{
+			if( _aborted )
+			{
+				if( retry != null )
+					open.push(retry);
+
+				stopped = true;
+				break;
+			}
+
+			Node node = retry != null ? retry : open.pop();
+			double cutoff = _incumbentValue - (integral ? 1 - _integrality : _integrality * Math.max(1, Math.abs(_incumbentValue)));
+
+			if( retry == null && node._bound > cutoff )
+				continue;
+
+			retry = null;
+
+			applyBounds(lp, node);
+			DualSimplex.Result result = lp.solve(deadline);
+
+			// A tableau that stalls is rebuilt from the rows once, a node that still fails is dropped with its bound
+			if( result == DualSimplex.Result.Failed )
+			{
+				lp = createLp(lazy);
+				applyBounds(lp, node);
+				result = lp.solve(deadline);
+			}
+
+			if( result == DualSimplex.Result.Limit )
+			{
+				open.push(node);
+				stopped = true;
+				break;
+			}
+
+			_nodes++;
+
+			if( result == DualSimplex.Result.Failed )
+			{
+				if( _verbose )
+					System.out.println("B&B: LP failed at node " + _nodes + ", node dropped");
+
+				_unsolved++;
+				unsolvedBound = Math.min(unsolvedBound, node._bound);
+				lp = createLp(lazy);
+				continue;
+			}
+
+			if( result == DualSimplex.Result.Infeasible || lp.getObjective() > cutoff )
+				continue;
+
+			int branch = -1;
+			double distance = _integrality;
+
+			for(int j=0; j<_count; ++j) if( _integer[j] )
+			{
+				double value = lp.getValue(j);
+				double fraction = Math.min(value - Math.floor(value), Math.ceil(value) - value);
+
+				if( fraction > distance )
+				{
+					branch = j;
+					distance = fraction;
+				}
+			}
+
+			if( branch == -1 )
+			{
+				double[] candidate = new double[_count];
+				for(int j=0; j<_count; ++j)
+					candidate[j] = _integer[j] ? Math.rint(lp.getValue(j)) : lp.getValue(j);
+
+				// Lazy rows violated by the rounded solution join the LP and the node is solved again
+				if( separate(lp, lazy, candidate) > 0 )
+				{
+					retry = node;
+					continue;
+				}
+
+				// Only a solution that satisfies every row becomes the incumbent, one that rounding pushed out of an
+				// eager row leaves the node unsolved
+				if( isFeasible(candidate) == false )
+				{
+					if( _verbose )
+						System.out.println("B&B: rounded solution infeasible at node " + _nodes + ", node dropped");
+
+					_unsolved++;
+					unsolvedBound = Math.min(unsolvedBound, lp.getObjective());
+					continue;
+				}
+
+				_incumbent = candidate;
+				_incumbentValue = 0;
+				for(int j=0; j<_count; ++j)
+					_incumbentValue += _cost[j] * _incumbent[j];
+
+				if( _verbose )
+					System.out.println("B&B: incumbent " + _incumbentValue + " at node " + _nodes + ", " + (System.currentTimeMillis() - start) / 1000.0 + " sec.");
+
+				if( _listener != null )
+					_listener.incumbent(_incumbentValue, bound(open, _incumbentValue), _incumbent.clone());
+
+				continue;
+			}
+
+			// The child closer to the LP value is explored first
+			double value = lp.getValue(branch);
+			Node down = new Node(node, branch, lp.getLower(branch), Math.floor(value), lp.getObjective());
+			Node up = new Node(node, branch, Math.ceil(value), lp.getUpper(branch), lp.getObjective());
+
+			open.push(value - Math.floor(value) < 0.5 ? up : down);
+			open.push(value - Math.floor(value) < 0.5 ? down : up);
+
+			if( _verbose && _nodes % 1000 == 0 )
+				System.out.println("B&B: " + _nodes + " nodes, " + open.size() + " open, incumbent " + _incumbentValue);
+		}
+
+		_bound = Math.min(bound(open, _incumbentValue), unsolvedBound);
+
+		if( stopped || _unsolved > 0 )
+			_status = _incumbent != null ? Status.Feasible : Status.Unknown;
+		else
+			_status = _incumbent != null ? Status.Optimal : Status.Infeasible;
+
+		return _status;
+	}
+
+	// Fresh tableau over the eager rows and the lazy rows already separated, with the slack basis
+	private DualSimplex createLp(boolean[] lazy)
+	{
+		DualSimplex ret = new DualSimplex(_count, _lower, _upper, _cost);
+
+		for(int i=0; i<_rowIndexes.size(); ++i) if( lazy[i] == false )
+			ret.addRow(_rowIndexes.get(i), _rowCoefficients.get(i), _rowBounds.get(i)[0], _rowBounds.get(i)[1]);
+
+		return ret;
+	}
+
+	// Adds the lazy rows violated by the given values to the LP and returns how many were added
+	private int separate(DualSimplex lp, boolean[] lazy, double[] values)
+	{
+		int ret = 0;
+
+		for(int i=_eagerRows; i<lazy.length; ++i) if( lazy[i] )
+		{
+			int[] indexes = _rowIndexes.get(i);
+			double[] coefficients = _rowCoefficients.get(i);
+			double activity = 0;
+
+			for(int k=0; k<indexes.length; ++k)
+				activity += coefficients[k] * values[indexes[k]];
+
+			double tolerance = _integrality * Math.max(1, Math.abs(activity));
+			if( activity < _rowBounds.get(i)[0] - tolerance || activity > _rowBounds.get(i)[1] + tolerance )
+			{
+				lp.addRow(indexes, coefficients, _rowBounds.get(i)[0], _rowBounds.get(i)[1]);
+				lazy[i] = false;
+				ret++;
+			}
+		}
+
+		_lazyAdded += ret;
+		return ret;
+	}
+
+	// Smallest bound among the open nodes and the given value
+	private static double bound(ArrayDeque<Node> open, double value)
+	{
+		double ret = value;
+		for(Node node: open)
+			ret = Math.min(ret, node._bound);
+
+		return ret;
+	}
+
+	// Restores the root bounds and applies the branching decisions from the root down to the node
+	private void applyBounds(DualSimplex lp, Node node)
+	{
+		for(int j=0; j<_count; ++j) if( _integer[j] )
+			lp.setBounds(j, _lower[j], _upper[j]);
+
+		ArrayList<Node> chain = new ArrayList<Node>();
+		for(Node current=node; current._variable != -1; current=current._parent)
+			chain.add(current);
+
+		for(int k=chain.size() - 1; k>=0; --k)
+			lp.setBounds(chain.get(k)._variable, chain.get(k)._lower, chain.get(k)._upper);
+	}
+
+	@Override
+	public Status getStatus()
+	{
+		return _status;
+	}
+
+	@Override
+	public double getObjValue()
+	{
+		return _incumbent != null ? _incumbentValue : Double.NaN;
+	}
+
+	@Override
+	public double getBestBound()
+	{
+		return _bound;
+	}
+
+	@Override
+	public double getGap()
+	{
+		if( _incumbent == null )
+			return Double.POSITIVE_INFINITY;
+
+		return Math.max(0, _incumbentValue - _bound) / (1e-10 + Math.abs(_incumbentValue));
+	}
+
+	@Override
+	public long getNodes()
+	{
+		return _nodes;
+	}
+
+	@Override
+	public int getCuts()
+	{
+		return _lazyAdded;
+	}
+
+	@Override
+	public double getValue(int index)
+	{
+		if( _incumbent == null )
+			throw new RuntimeException("No solution available!");
+
+		return _incumbent[index];
+	}
+
+	@Override
+	public void end()
+	{
+		_incumbent = null;
+	}
+}
@@ -0,0 +1,301 @@
+package model;
+
+import java.util.Arrays;
+
+import ilog.concert.IloException;
+import ilog.concert.IloLinearNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.cplex.IloCplex;
+import ilog.cplex.IloCplex.IntParam;
+
+public class CplexBackend implements MipBackend
+{
+	private IloCplex cplex;
+	private IloCplex.Aborter _aborter;
+	private Listener _listener;
+	private IloNumVar[] _variables;
+	private int _count;
+
+	public CplexBackend()
+	{
+		try
+		{
+			cplex = new IloCplex();
+			_aborter = cplex.use(new IloCplex.Aborter());
+			_variables = new IloNumVar[1024];
+			_count = 0;
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot create CPLEX: " + e);
+		}
+	}
+
+	@Override
+	public int addVariables(int count, double[] lower, double[] upper, boolean integer, String[] names)
+	{
+		try
+		{
+			IloNumVar[] variables;
+
+			if( integer && Arrays.stream(lower).allMatch(v -> v == 0) && Arrays.stream(upper).allMatch(v -> v == 1) )
+				variables = cplex.boolVarArray(count, names);
+			else if( integer )
+				variables = cplex.intVarArray(count, Arrays.stream(lower).mapToInt(v -> (int)Math.ceil(v)).toArray(), Arrays.stream(upper).mapToInt(v -> (int)Math.floor(v)).toArray(), names);
+			else
+				variables = cplex.numVarArray(count, lower, upper, names);
+
+			if( _count + count > _variables.length )
+				_variables = Arrays.copyOf(_variables, Math.max(2 * _variables.length, _count + count));
+
+			System.arraycopy(variables, 0, _variables, _count, count);
+			_count += count;
+
+			return _count - count;
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot create CPLEX variables: " + e);
+		}
+	}
+
+	private IloLinearNumExpr expression(int[] indexes, double[] coefficients) throws IloException
+	{
+		IloNumVar[] variables = new IloNumVar[indexes.length];
+		for(int k=0; k<indexes.length; ++k)
+			variables[k] = _variables[indexes[k]];
+
+		IloLinearNumExpr ret = cplex.linearNumExpr();
+		ret.addTerms(coefficients, variables);
+
+		return ret;
+	}
+
+	private static double finite(double value)
+	{
+		return Math.max(-Double.MAX_VALUE, Math.min(Double.MAX_VALUE, value));
+	}
+
+	@Override
+	public void addConstraint(int[] indexes, double[] coefficients, double lower, double upper, String name)
+	{
+		try
+		{
+			cplex.addRange(finite(lower), expression(indexes, coefficients), finite(upper), name);
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot create CPLEX constraint: " + e);
+		}
+	}
+
+	@Override
+	public void addLazyConstraint(int[] indexes, double[] coefficients, double lower, double upper)
+	{
+		try
+		{
+			cplex.addLazyConstraint(cplex.range(finite(lower), expression(indexes, coefficients), finite(upper)));
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot create CPLEX lazy constraint: " + e);
+		}
+	}
+
+	@Override
+	public void setObjective(int[] indexes, double[] coefficients)
+	{
+		try
+		{
+			cplex.addMinimize(expression(indexes, coefficients));
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot create CPLEX objective: " + e);
+		}
+	}
+
+	@Override
+	public void addMipStart(int[] indexes, double[] values)
+	{
+		try
+		{
+			IloNumVar[] variables = new IloNumVar[indexes.length];
+			for(int k=0; k<indexes.length; ++k)
+				variables[k] = _variables[indexes[k]];
+
+			cplex.addMIPStart(variables, values, IloCplex.MIPStartEffort.Repair);
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot add CPLEX MIP start: " + e);
+		}
+	}
+
+	@Override
+	public void setTimeLimit(double seconds)
+	{
+		try
+		{
+			cplex.setParam(IntParam.TimeLimit, (int)Math.ceil(seconds));
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void setVerbose(boolean verbose)
+	{
+		if( verbose == false )
+		{
+			cplex.setOut(null);
+			cplex.setWarning(null);
+		}
+	}
+
+	@Override
+	public void setListener(Listener listener)
+	{
+		_listener = listener;
+	}
+
+	private class Incumbent extends IloCplex.IncumbentCallback
+	{
+		@Override
+		protected void main() throws IloException
+		{
+			_listener.incumbent(getObjValue(), getBestObjValue(), getValues(Arrays.copyOf(_variables, _count)));
+		}
+	}
+
+	@Override
+	public MipBackend.Status solve()
+	{
+		try
+		{
+			if( _listener != null )
+				cplex.use(new Incumbent());
+
+			cplex.solve();
+			return getStatus();
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("CPLEX failed: " + e);
+		}
+	}
+
+	@Override
+	public void abort()
+	{
+		_aborter.abort();
+	}
+
+	@Override
+	public MipBackend.Status getStatus()
+	{
+		try
+		{
+			IloCplex.Status status = cplex.getStatus();
+
+			if( status == IloCplex.Status.Optimal )
+				return MipBackend.Status.Optimal;
+			if( status == IloCplex.Status.Feasible )
+				return MipBackend.Status.Feasible;
+			if( status == IloCplex.Status.Infeasible )
+				return MipBackend.Status.Infeasible;
+			if( status == IloCplex.Status.Error )
+				return MipBackend.Status.Error;
+
+			return MipBackend.Status.Unknown;
+		}
+		catch(IloException e)
+		{
+			return MipBackend.Status.Error;
+		}
+	}
+
+	private boolean hasSolution()
+	{
+		return getStatus() == MipBackend.Status.Optimal || getStatus() == MipBackend.Status.Feasible;
+	}
+
+	@Override
+	public double getObjValue()
+	{
+		try
+		{
+			return hasSolution() ? cplex.getObjValue() : Double.NaN;
+		}
+		catch(IloException e)
+		{
+			return Double.NaN;
+		}
+	}
+
+	@Override
+	public double getBestBound()
+	{
+		try
+		{
+			return cplex.getBestObjValue();
+		}
+		catch(IloException e)
+		{
+			return Double.NaN;
+		}
+	}
+
+	@Override
+	public double getGap()
+	{
+		try
+		{
+			return hasSolution() ? cplex.getMIPRelativeGap() : Double.POSITIVE_INFINITY;
+		}
+		catch(IloException e)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+	@Override
+	public long getNodes()
+	{
+		return cplex.getNnodes64();
+	}
+
+	@Override
+	public int getCuts()
+	{
+		try
+		{
+			return cplex.getNcuts(IloCplex.CutType.User);
+		}
+		catch(IloException e)
+		{
+			return 0;
+		}
+	}
+
+	@Override
+	public double getValue(int index)
+	{
+		try
+		{
+			return cplex.getValue(_variables[index]);
+		}
+		catch(IloException e)
+		{
+			throw new RuntimeException("Cannot read CPLEX solution: " + e);
+		}
+	}
+
+	@Override
+	public void end()
+	{
+		cplex.end();
+	}
+}
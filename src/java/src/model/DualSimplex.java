@@ -0,0 +1,515 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Bounded dual simplex over a dense compact tableau, for models with finite bounds on every variable.
+// Each row i is a slack s_i = a_i x with bounds [lower_i, upper_i], so the model is min c x subject to bounds only.
+// Basic variables are kept as linear combinations of the nonbasic ones: basic(i) = sum_k T[i][k] nonbasic(k).
+// Changing bounds keeps the basis dual feasible, so branch and bound can reuse the same tableau at every node.
+class DualSimplex
+{
+	// Limit when the deadline passed, Failed when the iteration cap was hit, in both cases the basis is not optimal
+	public enum Result { Optimal, Infeasible, Limit, Failed }
+
+	private static final double _primalTolerance = 1e-7;
+	private static final double _pivotTolerance = 1e-9;
+	private static final double _dualTolerance = 1e-9;
+
+	// Pivots in a row that leave the objective unchanged before the pivoting rules switch to Bland's rule, which cannot cycle
+	private static final int _degenerateLimit = 50;
+
+	// Largest tableau entry the pivots may build up before the tableau is rebuilt from the rows
+	private static final double _growthLimit = 1e7;
+
+	private int _columns;
+	private int _rows;
+
+	// Variables 0.._columns-1 are structural, _columns.._columns+_rows-1 are slacks
+	private double[] _lower;
+	private double[] _upper;
+	private double[] _cost;
+	private double[] _value;
+
+	private double[][] _tableau;
+	private double[] _reduced;
+	private int[] _basic;
+	private int[] _nonbasic;
+	private boolean[] _atUpper;
+
+	// Position of each variable: row if basic, -1-column if nonbasic
+	private int[] _position;
+
+	// Rows as given, to rebuild the tableau of the current basis when rounding errors have piled up
+	private ArrayList<int[]> _rowIndexes = new ArrayList<int[]>();
+	private ArrayList<double[]> _rowCoefficients = new ArrayList<double[]>();
+	private long _pivots;
+	private double _growth;
+
+	private long _iterations;
+	private long _iterationLimit = 0;
+
+	public DualSimplex(int columns, double[] lower, double[] upper, double[] cost)
+	{
+		_columns = columns;
+		_rows = 0;
+		_lower = Arrays.copyOf(lower, columns);
+		_upper = Arrays.copyOf(upper, columns);
+		_cost = Arrays.copyOf(cost, columns);
+		_value = new double[columns];
+		_tableau = new double[16][];
+		_basic = new int[16];
+		_nonbasic = new int[columns];
+		_atUpper = new boolean[columns];
+		_position = new int[columns];
+		_reduced = Arrays.copyOf(cost, columns);
+
+		for(int j=0; j<columns; ++j)
+		{
+			if( Double.isInfinite(lower[j]) || Double.isInfinite(upper[j]) )
+				throw new RuntimeException("Variable " + j + " has an infinite bound!");
+
+			_nonbasic[j] = j;
+			_position[j] = -1 - j;
+		}
+	}
+
+	// Adds the row lower <= sum coefficients[k] x[indexes[k]] <= upper, with a new basic slack
+	public void addRow(int[] indexes, double[] coefficients, double lower, double upper)
+	{
+		if( _rows == _tableau.length )
+		{
+			_tableau = Arrays.copyOf(_tableau, 2 * _rows);
+			_basic = Arrays.copyOf(_basic, 2 * _rows);
+		}
+
+		int variable = _columns + _rows;
+		if( variable == _lower.length )
+		{
+			int capacity = 2 * variable + 1;
+			_lower = Arrays.copyOf(_lower, capacity);
+			_upper = Arrays.copyOf(_upper, capacity);
+			_cost = Arrays.copyOf(_cost, capacity);
+			_value = Arrays.copyOf(_value, capacity);
+			_position = Arrays.copyOf(_position, capacity);
+		}
+
+		_lower[variable] = lower;
+		_upper[variable] = upper;
+		_rowIndexes.add(indexes.clone());
+		_rowCoefficients.add(coefficients.clone());
+
+		double[] row = new double[_columns];
+		double value = 0;
+
+		for(int k=0; k<indexes.length; ++k)
+		{
+			int j = indexes[k];
+			int position = _position[j];
+
+			if( position < 0 )
+				row[-1 - position] += coefficients[k];
+			else
+				for(int c=0; c<_columns; ++c)
+					row[c] += coefficients[k] * _tableau[position][c];
+
+			value += coefficients[k] * _value[j];
+		}
+
+		_tableau[_rows] = row;
+		_basic[_rows] = variable;
+		_position[variable] = _rows;
+		_value[variable] = value;
+		_rows++;
+	}
+
+	public int getRows()
+	{
+		return _rows;
+	}
+
+	public void setBounds(int variable, double lower, double upper)
+	{
+		_lower[variable] = lower;
+		_upper[variable] = upper;
+	}
+
+	public double getLower(int variable)
+	{
+		return _lower[variable];
+	}
+
+	public double getUpper(int variable)
+	{
+		return _upper[variable];
+	}
+
+	public double getValue(int variable)
+	{
+		return _value[variable];
+	}
+
+	public double getObjective()
+	{
+		double ret = 0;
+		for(int j=0; j<_columns; ++j)
+			ret += _cost[j] * _value[j];
+
+		return ret;
+	}
+
+	public long getIterations()
+	{
+		return _iterations;
+	}
+
+	// Pivots allowed in one call to solve(), 0 for a default proportional to the size of the tableau
+	public void setIterationLimit(long limit)
+	{
+		_iterationLimit = limit;
+	}
+
+	public Result solve(long deadline)
+	{
+		placeNonbasics();
+
+		long limit = _iterationLimit > 0 ? _iterationLimit : 1000 + 50L * (_rows + _columns);
+		int degenerate = 0;
+
+		for(long iteration=0; ; ++iteration)
+		{
+			if( (iteration & 63) == 0 && System.currentTimeMillis() > deadline )
+				return Result.Limit;
+
+			if( iteration >= limit )
+				return Result.Failed;
+
+			// Large entries come with cancellation errors, the tableau is rebuilt at most once every _rows pivots
+			if( _growth > _growthLimit && _pivots > _rows )
+			{
+				if( refactor() == false || placeNonbasics() == false )
+					return Result.Failed;
+			}
+
+			boolean bland = degenerate >= _degenerateLimit;
+			int r = leavingRow(bland);
+
+			if( r == -1 )
+				return Result.Optimal;
+
+			int leaving = _basic[r];
+			boolean increase = _value[leaving] < _lower[leaving];
+			double target = increase ? _lower[leaving] : _upper[leaving];
+			int q = bland ? enteringBland(_tableau[r], increase) : enteringHarris(_tableau[r], increase);
+
+			// A row without entering column proves infeasibility, unless rounding errors made it up: the proof is checked
+			// on the rows as given, and the tableau rebuilt when it does not hold
+			if( q == -1 && _pivots > 0 && certified(r) == false )
+			{
+				if( refactor() == false || placeNonbasics() == false )
+					return Result.Failed;
+
+				continue;
+			}
+
+			if( q == -1 )
+				return Result.Infeasible;
+
+			double pivot = _tableau[r][q];
+			int entering = _nonbasic[q];
+			double theta = (target - _value[leaving]) / pivot;
+
+			// The dual objective only moves with a nonzero reduced cost on the entering column
+			degenerate = Math.abs(_reduced[q]) <= _dualTolerance ? degenerate + 1 : 0;
+
+			_value[entering] += theta;
+			for(int i=0; i<_rows; ++i)
+				_value[_basic[i]] += _tableau[i][q] * theta;
+
+			_value[leaving] = target;
+
+			pivot(r, q);
+
+			_basic[r] = entering;
+			_position[entering] = r;
+			_nonbasic[q] = leaving;
+			_position[leaving] = -1 - q;
+			_atUpper[q] = increase == false;
+
+			_iterations++;
+			_pivots++;
+		}
+	}
+
+	// Row r of the tableau is the combination of the rows with the multipliers y read off its slack columns, so that
+	// sum_i y_i (a_i x - s_i) = 0. Recomputed on the rows as given, it must be out of reach of the bounds whatever errors
+	// the tableau carries, since any multipliers give a valid combination
+	private boolean certified(int r)
+	{
+		double[] y = new double[_rows];
+		for(int i=0; i<_rows; ++i)
+		{
+			int position = _position[_columns + i];
+
+			if( position < 0 && Math.abs(_tableau[r][-1 - position]) > _pivotTolerance )
+				y[i] = _tableau[r][-1 - position];
+		}
+
+		if( _basic[r] >= _columns )
+			y[_basic[r] - _columns] = -1;
+
+		double[] combination = new double[_columns + _rows];
+		for(int i=0; i<_rows; ++i) if( y[i] != 0 )
+		{
+			int[] indexes = _rowIndexes.get(i);
+			double[] coefficients = _rowCoefficients.get(i);
+
+			for(int k=0; k<indexes.length; ++k)
+				combination[indexes[k]] += y[i] * coefficients[k];
+
+			combination[_columns + i] = -y[i];
+		}
+
+		double low = 0;
+		double high = 0;
+		double scale = 0;
+
+		for(int j=0; j<_columns + _rows; ++j) if( combination[j] != 0 )
+		{
+			double a = combination[j];
+
+			low += a * (a > 0 ? _lower[j] : _upper[j]);
+			high += a * (a > 0 ? _upper[j] : _lower[j]);
+			scale += Math.abs(a);
+		}
+
+		return low > _primalTolerance * scale || high < -_primalTolerance * scale;
+	}
+
+	// The basic variable with the largest relative bound violation, or with Bland's rule the violated one of lowest index
+	private int leavingRow(boolean bland)
+	{
+		int ret = -1;
+		double violation = _primalTolerance;
+
+		for(int i=0; i<_rows; ++i)
+		{
+			int variable = _basic[i];
+			double excess = Math.max(_lower[variable] - _value[variable], _value[variable] - _upper[variable]) / Math.max(1, Math.abs(_value[variable]));
+
+			if( excess <= _primalTolerance )
+				continue;
+
+			if( bland ? ret == -1 || variable < _basic[ret] : excess > violation )
+			{
+				violation = excess;
+				ret = i;
+			}
+		}
+
+		return ret;
+	}
+
+	// Whether column k can enter for a leaving variable moving up or down, that is, its nonbasic variable can move in the
+	// direction that moves the leaving variable toward its bound
+	private boolean eligible(int k, double alpha, boolean increase)
+	{
+		if( Math.abs(alpha) <= _pivotTolerance || _lower[_nonbasic[k]] == _upper[_nonbasic[k]] )
+			return false;
+
+		return (alpha > 0) == ((_atUpper[k] == false) == increase);
+	}
+
+	// Harris two-pass ratio test: the largest pivot among the columns whose ratio is within the tolerance of the smallest,
+	// which keeps the tableau entries from growing on tiny pivots
+	private int enteringHarris(double[] row, boolean increase)
+	{
+		double bound = Double.POSITIVE_INFINITY;
+
+		for(int k=0; k<_columns; ++k) if( eligible(k, row[k], increase) )
+			bound = Math.min(bound, (Math.abs(_reduced[k]) + _dualTolerance) / Math.abs(row[k]));
+
+		int ret = -1;
+		for(int k=0; k<_columns; ++k) if( eligible(k, row[k], increase) && Math.abs(_reduced[k]) / Math.abs(row[k]) <= bound )
+		{
+			if( ret == -1 || Math.abs(row[k]) > Math.abs(row[ret]) )
+				ret = k;
+		}
+
+		return ret;
+	}
+
+	// Textbook ratio test with ties broken by the lowest variable index
+	private int enteringBland(double[] row, boolean increase)
+	{
+		int ret = -1;
+		double ratio = Double.POSITIVE_INFINITY;
+
+		for(int k=0; k<_columns; ++k) if( eligible(k, row[k], increase) )
+		{
+			double candidate = Math.abs(_reduced[k]) / Math.abs(row[k]);
+
+			if( candidate < ratio - 1e-12 || (candidate <= ratio + 1e-12 && _nonbasic[k] < _nonbasic[ret]) )
+			{
+				ret = k;
+				ratio = candidate;
+			}
+		}
+
+		return ret;
+	}
+
+	// Recomputes the tableau and reduced costs of the current basis from the rows, by Gaussian elimination with partial
+	// pivoting on the basic columns of the rows a_i x - s_i = 0; false if the basis is numerically singular
+	private boolean refactor()
+	{
+		int m = _rows;
+		int n = _columns;
+		int[] basicColumn = new int[_columns + _rows];
+		Arrays.fill(basicColumn, -1);
+
+		for(int r=0; r<m; ++r)
+			basicColumn[_basic[r]] = r;
+
+		// Each equation is [B | N], the basic part on the left in the order of the tableau rows
+		double[][] system = new double[m][m + n];
+		for(int i=0; i<m; ++i)
+		{
+			int[] indexes = _rowIndexes.get(i);
+			double[] coefficients = _rowCoefficients.get(i);
+
+			for(int k=0; k<indexes.length; ++k)
+			{
+				int j = indexes[k];
+				system[i][basicColumn[j] >= 0 ? basicColumn[j] : m - 1 - _position[j]] += coefficients[k];
+			}
+
+			int slack = _columns + i;
+			system[i][basicColumn[slack] >= 0 ? basicColumn[slack] : m - 1 - _position[slack]] -= 1;
+		}
+
+		for(int r=0; r<m; ++r)
+		{
+			int best = r;
+			for(int i=r+1; i<m; ++i) if( Math.abs(system[i][r]) > Math.abs(system[best][r]) )
+				best = i;
+
+			if( Math.abs(system[best][r]) < 1e-11 )
+				return false;
+
+			double[] swap = system[r];
+			system[r] = system[best];
+			system[best] = swap;
+
+			double[] row = system[r];
+			double pivot = row[r];
+			for(int k=r; k<m+n; ++k)
+				row[k] /= pivot;
+
+			for(int i=0; i<m; ++i) if( i != r && system[i][r] != 0 )
+			{
+				double[] other = system[i];
+				double factor = other[r];
+
+				for(int k=r; k<m+n; ++k)
+					other[k] -= factor * row[k];
+			}
+		}
+
+		// B x_B + N x_N = 0, so the tableau is -B^-1 N
+		for(int r=0; r<m; ++r)
+		{
+			double[] row = _tableau[r];
+			for(int k=0; k<n; ++k)
+				row[k] = -system[r][m + k];
+		}
+
+		for(int k=0; k<n; ++k)
+		{
+			double reduced = _cost[_nonbasic[k]];
+			for(int r=0; r<m; ++r)
+				reduced += _cost[_basic[r]] * _tableau[r][k];
+
+			_reduced[k] = reduced;
+		}
+
+		_pivots = 0;
+		_growth = 0;
+		return true;
+	}
+
+	// Tucker pivot: the basic variable of row r and the nonbasic variable of column q swap roles
+	private void pivot(int r, int q)
+	{
+		double[] row = _tableau[r];
+		double pivot = row[q];
+
+		for(int k=0; k<_columns; ++k)
+		{
+			row[k] = -row[k] / pivot;
+			_growth = Math.max(_growth, Math.abs(row[k]));
+		}
+
+		row[q] = 1 / pivot;
+
+		for(int i=0; i<_rows; ++i) if( i != r )
+		{
+			double[] other = _tableau[i];
+			double factor = other[q];
+
+			if( factor == 0 )
+				continue;
+
+			for(int k=0; k<_columns; ++k)
+				other[k] += factor * row[k];
+
+			other[q] = factor * row[q];
+		}
+
+		double factor = _reduced[q];
+		if( factor != 0 )
+		{
+			for(int k=0; k<_columns; ++k)
+				_reduced[k] += factor * row[k];
+
+			_reduced[q] = factor * row[q];
+		}
+	}
+
+	// Puts each nonbasic variable on the bound its reduced cost asks for, and recomputes the basic values; false if a
+	// reduced cost asks for an infinite bound, so the basis is not dual feasible
+	private boolean placeNonbasics()
+	{
+		boolean ret = true;
+
+		for(int k=0; k<_columns; ++k)
+		{
+			int variable = _nonbasic[k];
+
+			if( _reduced[k] > _pivotTolerance && Double.isFinite(_lower[variable]) )
+				_atUpper[k] = false;
+			else if( _reduced[k] < -_pivotTolerance && Double.isFinite(_upper[variable]) )
+				_atUpper[k] = true;
+			else if( Double.isInfinite(_atUpper[k] ? _upper[variable] : _lower[variable]) )
+				_atUpper[k] = !_atUpper[k];
+
+			ret &= Double.isFinite(_atUpper[k] ? _upper[variable] : _lower[variable]);
+			ret &= _atUpper[k] ? _reduced[k] <= _pivotTolerance : _reduced[k] >= -_pivotTolerance;
+
+			_value[variable] = _atUpper[k] ? _upper[variable] : _lower[variable];
+		}
+
+		for(int i=0; i<_rows; ++i)
+		{
+			double[] row = _tableau[i];
+			double value = 0;
+
+			for(int k=0; k<_columns; ++k)
+				value += row[k] * _value[_nonbasic[k]];
+
+			_value[_basic[i]] = value;
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,75 @@
+package model;
+
+// Minimal interface to a MIP solver: variables are identified by consecutive indexes, the objective is minimized
+public interface MipBackend
+{
+	public enum Status { Optimal, Feasible, Infeasible, Unknown, Error }
+
+	// Called from the solver thread with the values of all the variables at each new incumbent
+	public interface Listener
+	{
+		void incumbent(double objective, double bound, double[] values);
+	}
+
+	// Adds count variables and returns the index of the first one, names may be null
+	int addVariables(int count, double[] lower, double[] upper, boolean integer, String[] names);
+
+	// Adds lower <= sum coefficients[k] x[indexes[k]] <= upper, infinite bounds are allowed
+	void addConstraint(int[] indexes, double[] coefficients, double lower, double upper, String name);
+
+	// Adds a row that only needs to be enforced when the solver checks a candidate integer solution
+	void addLazyConstraint(int[] indexes, double[] coefficients, double lower, double upper);
+
+	void setObjective(int[] indexes, double[] coefficients);
+
+	// Suggests a starting solution, the backend may repair or discard it
+	void addMipStart(int[] indexes, double[] values);
+
+	void setTimeLimit(double seconds);
+
+	void setVerbose(boolean verbose);
+
+	void setListener(Listener listener);
+
+	Status solve();
+
+	// Stops a running solve, may be called from any thread
+	void abort();
+
+	Status getStatus();
+
+	double getObjValue();
+
+	double getBestBound();
+
+	// Relative gap between the incumbent and the best bound, or infinity without an incumbent
+	double getGap();
+
+	long getNodes();
+
+	int getCuts();
+
+	double getValue(int index);
+
+	void end();
+
+	// Creates a backend by name: "cplex", "bnb" (pure Java), or "auto" for CPLEX when it is on the classpath
+	public static MipBackend create(String name)
+	{
+		if( name.equals("bnb") )
+			return new BranchAndBoundBackend();
+
+		try
+		{
+			// Loaded by name, so this package also compiles without cplex.jar when CplexBackend is left out
+			return (MipBackend)Class.forName("model.CplexBackend").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError e)
+		{
+			if( name.equals("auto") )
+				return new BranchAndBoundBackend();
+
+			throw new RuntimeException("CPLEX backend not available: " + e);
+		}
+	}
+}
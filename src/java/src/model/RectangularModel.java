@@ -1,41 +1,91 @@
 package model;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.Collectors;
+
 import general.Cluster;
 import general.Instance;
+import general.PointStore;
 import general.Solution;
-import ilog.concert.IloException;
-import ilog.concert.IloNumExpr;
-import ilog.concert.IloNumVar;
-import ilog.cplex.IloCplex;
-import ilog.cplex.IloCplex.IntParam;
-import ilog.cplex.IloCplex.Status;
-import ilog.cplex.IloCplex.UnknownObjectException;
+import general.SolutionListener;
 
 public class RectangularModel
 {
+	// Clusters of the same class are interchangeable, these orderings remove the equivalent permutations
+	public enum Symmetry { None, Ordering, Points }
+	
 	private Instance _instance;
+	private PointStore _store;
 	private Solution _solution;
-	private IloCplex cplex;
+	private Solution _initial;
+	private SolutionListener _listener;
+	private int[] _weights;
+	private double[][] _startLower;
+	private double[][] _startUpper;
+	private Cluster[] _startClusters;
+	private volatile MipBackend _backend;
+	private String _backendName = "cplex";
 	
 	private int p;
 	private int n;
 	private int d;
 	private int c;
 	private int[] classOf;
+	private int[] firstOf;
 	
 	private int _maxTime = 3600;
+	private long _deadline = Long.MAX_VALUE;
+	private long _start;
+	private volatile boolean _cancelled = false;
+	private List<RectangularModel> _subproblems = new CopyOnWriteArrayList<RectangularModel>();
 	private boolean _verbose = true;
 	private boolean _summary = true;
+	private boolean _names = false;
+	private Symmetry _symmetry = Symmetry.None;
+	private boolean _lazy = false;
+	private double _margin = 0.1;
+	private int _lazyRows;
+	private boolean _tighten = true;
+	
+	// Range of the sides of each box: the bounding box of its class, or of the whole instance
+	private double[][] _low;
+	private double[][] _high;
+	
+	private double _buildTime;
+	// Bytes allocated on the Java heap by the thread building the model; the native memory of CPLEX is not counted
+	private long _buildAllocated;
+	
+	private MipBackend.Status _status;
+	private double _objective;
+	private double _bound;
+	private long _nodes;
+	private double _elapsed;
+	
+	private boolean _decompose = false;
+	private int _threads = Runtime.getRuntime().availableProcessors();
 
-	private IloNumVar[][] z;
-	private IloNumVar[][] r;
-	private IloNumVar[][] l;
-	private IloNumVar[][][] wl;
-	private IloNumVar[][][] wr;
+	// Indexes of the variables in the backend
+	private int[][] z;
+	private int[][] r;
+	private int[][] l;
+	private int[][][] wl;
+	private int[][][] wr;
 
 	public RectangularModel(Instance instance)
 	{
 		_instance = instance;
+		_store = instance.getStore();
 		
 		p = _instance.getPoints();
 		n = _instance.getTotalClusters();
@@ -43,10 +93,14 @@ public class RectangularModel
 		c = _instance.getClasses();
 		
 		classOf = new int[n];
+		firstOf = new int[c];
 		
 		for(int i=0, k=0; i<c; ++i)
-		for(int j=0; j<_instance.getClusters(i); ++j)
-			classOf[k++] = i;
+		{
+			firstOf[i] = k;
+			for(int j=0; j<_instance.getClusters(i); ++j)
+				classOf[k++] = i;
+		}
 	}
 
 	public Solution run()
@@ -65,16 +119,34 @@ public class RectangularModel
 		return ret;
 	}
 	
-	public Solution solve() throws IloException
+	public Solution solve()
 	{
+		_start = System.currentTimeMillis();
+		
+		if( _decompose && c > 1 )
+			return solveByClass();
+		
+		long start = _start;
+		long allocated = allocatedBytes();
+		
 		createSolver();
+		computeBounds();
 		createVariables();
+		placeInitialSolution();
+		_lazyRows = 0;
 	    createOrderingConstraints();
+	    createSymmetryConstraints();
 	    createBindingLRWConstraints();
 	    createBindingWZConstraints();
 	    createClusteringConstraints();
 		createObjective();
 		
+		if( _startClusters != null )
+			createMipStart();
+		
+		_buildTime = (System.currentTimeMillis() - start) / 1000.0;
+		_buildAllocated = allocatedBytes() - allocated;
+		
 		solveModel();
     	obtainSolution();
 	    closeSolver();
@@ -82,196 +154,699 @@ public class RectangularModel
 	    return _solution;
 	}
 
-	private void createSolver() throws IloException
+	// The objective only couples each box with the foreign points it covers, so every class is an independent subproblem:
+	// the points of the class must be covered by its boxes, and every other point is a foreign point
+	private Solution solveByClass()
+	{
+		long start = System.currentTimeMillis();
+		
+		// One time limit for the whole solve: subproblems that wait for a thread do not get a fresh one when they start
+		long deadline = Math.min(_deadline, _start + 1000L * _maxTime);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(_threads, c));
+		List<Future<RectangularModel>> futures = new ArrayList<Future<RectangularModel>>();
+		
+		// Incumbents of the subproblems are merged as soon as every class has one
+		Solution[] incumbents = new Solution[c];
+		double[] objectives = new double[c];
+		double[] bounds = new double[c];
+		
+		_subproblems.clear();
+		
+		for(int k=0; k<c; ++k)
+		{
+			final int classID = k;
+			RectangularModel model = subproblem(k, deadline);
+			
+			if( _listener != null )
+			{
+				model._listener = (solution, objective, bound, gap, elapsed) ->
+				{
+					synchronized( incumbents )
+					{
+						incumbents[classID] = toInstance(solution);
+						objectives[classID] = objective;
+						bounds[classID] = bound;
+					
+						if( Arrays.stream(incumbents).allMatch(incumbent -> incumbent != null) )
+						{
+							Solution merged = new Solution();
+							for(Solution incumbent: incumbents)
+								incumbent.getClusters().forEach(cluster -> merged.add(cluster));
+						
+							double total = Arrays.stream(objectives).sum();
+							double lower = Arrays.stream(bounds).sum();
+							_listener.improved(merged, total, lower, gap(total, lower), (System.currentTimeMillis() - _start) / 1000.0);
+						}
+					}
+				};
+			}
+			
+			_subproblems.add(model);
+			futures.add(executor.submit(() -> { model.solve(); return model; }));
+			
+			if( _cancelled )
+				model.cancel();
+		}
+		
+		executor.shutdown();
+		
+		_solution = new Solution();
+		_status = MipBackend.Status.Optimal;
+		_objective = 0;
+		_bound = 0;
+		_nodes = 0;
+		_buildTime = 0;
+		_buildAllocated = 0;
+		
+		for(int k=0; k<c; ++k)
+		{
+			RectangularModel model;
+			
+			try
+			{
+				model = futures.get(k).get();
+			}
+			catch(InterruptedException | ExecutionException e)
+			{
+				executor.shutdownNow();
+				throw new RuntimeException("Subproblem of class " + k + " failed: " + e);
+			}
+			
+			toInstance(model._solution).getClusters().forEach(cluster -> _solution.add(cluster));
+			
+			_status = worse(_status, model._status);
+			_objective += model._objective;
+			_bound += model._bound;
+			_nodes += model._nodes;
+			_buildTime += model._buildTime;
+			// Each subproblem is built on its own thread, so the counts do not overlap
+			_buildAllocated += model._buildAllocated;
+		}
+		
+		_elapsed = (System.currentTimeMillis() - start) / 1000.0;
+		
+		if( _summary )
+		{
+			System.out.print(_instance.getName() + " | MIP by class | ");
+			System.out.print(_status + " | ");
+			System.out.print("Obj: " + String.format("%6.4f", _objective) + " | ");
+			System.out.print(String.format("%6.2f", _elapsed) + " sec. | ");
+			System.out.print(_nodes + " nodes | ");
+			System.out.print(String.format("%6.2f", _buildTime) + " build sec. | ");
+			System.out.print(_buildAllocated / (1024 * 1024) + " build alloc MB | ");
+			System.out.print(c + " subproblems | ");
+			System.out.println();
+		}
+		
+		return _solution;
+	}
+	
+	// Subproblem points keep the indexes of the instance, class 0 holds the boxes of the subproblem class
+	private Solution toInstance(Solution solution)
+	{
+		Solution ret = new Solution();
+		
+		for(Cluster cluster: solution.getClusters())
+			ret.add(Cluster.fromArray(_instance, cluster.getIndexes()));
+		
+		return ret;
+	}
+	
+	private static double gap(double objective, double bound)
+	{
+		return Math.max(0, objective - bound) / Math.max(1e-10, Math.abs(objective));
+	}
+	
+	private static MipBackend.Status worse(MipBackend.Status first, MipBackend.Status second)
+	{
+		return first.ordinal() >= second.ordinal() ? first : second;
+	}
+	
+	// Builds the model of class k, stopping at the given deadline: its points become class 0 with the clusters of class k, the
+	// rest become class 1 without clusters
+	private RectangularModel subproblem(int k, long deadline)
+	{
+		int[] classes = new int[p];
+		for(int i=0; i<p; ++i)
+			classes[i] = _store.getClassID(i) == k ? 0 : 1;
+		
+		// Only the classes differ, the coordinates and IDs are shared with the instance since models never write to the store
+		PointStore store = new PointStore(d, _store.getCoordinates(), classes, _store.getIds(), p);
+		Instance instance = new Instance(_instance.getName() + " class " + k, 2, 0, store);
+		instance.setClusters(0, _instance.getClusters(k));
+		
+		RectangularModel ret = new RectangularModel(instance);
+		ret._backendName = _backendName;
+		ret._maxTime = _maxTime;
+		ret._deadline = deadline;
+		ret._verbose = _verbose;
+		ret._summary = _summary;
+		ret._names = _names;
+		ret._symmetry = _symmetry;
+		ret._lazy = _lazy;
+		ret._margin = _margin;
+		ret._tighten = _tighten;
+		ret._weights = _weights;
+		
+		if( _initial != null )
+		{
+			ret._initial = new Solution();
+			
+			for(Cluster cluster: _initial.getClusters()) if( cluster.size() > 0 && cluster.getClassID() == k )
+				ret._initial.add(Cluster.fromArray(instance, cluster.getIndexes()));
+		}
+		
+		return ret;
+	}
+
+	private void createSolver()
 	{
-		if (cplex != null)
-			cplex.end();
+		if (_backend != null)
+			_backend.end();
 		
-		cplex = new IloCplex();
+		_backend = MipBackend.create(_backendName);
+		_backend.setVerbose(_verbose);
 		
-		if( _verbose == false )
+		if( _listener != null )
 		{
-			cplex.setOut(null);
-			cplex.setWarning(null);
+			_backend.setListener((objective, bound, values) ->
+			{
+				double lower = Math.max(0, bound);
+				_listener.improved(solutionFrom(index -> values[index]), objective, lower, gap(objective, lower), (System.currentTimeMillis() - _start) / 1000.0);
+			});
 		}
+		
+		if( _cancelled )
+			_backend.abort();
 	}
 
-	private void createVariables() throws IloException
+	private void createVariables()
 	{
-		z = new IloNumVar[p][n];
-		r = new IloNumVar[n][d];
-		l = new IloNumVar[n][d];
-		wl = new IloNumVar[p][n][d];
-		wr = new IloNumVar[p][n][d];
+		z = new int[p][];
+		r = new int[n][];
+		l = new int[n][];
+		wl = new int[p][n][];
+		wr = new int[p][n][];
+		
+		double[] zeros = new double[Math.max(n, d)];
+		double[] ones = new double[Math.max(n, d)];
+		Arrays.fill(ones, 1);
+		
+		// With Points, the k-th point of a class can only belong to the first k+1 clusters of its class
+		int[] rank = new int[c];
 		
 		for(int i=0; i<p; ++i)
-	    for(int j=0; j<n; ++j)
-	    	z[i][j] = cplex.boolVar("z" + i + "_" + j);
+		{
+			double[] upper = ones;
+			int classID = _store.getClassID(i);
+			
+			if( _symmetry == Symmetry.Points && rank[classID] + 1 < _instance.getClusters(classID) )
+			{
+				upper = Arrays.copyOf(ones, n);
+				for(int j=firstOf[classID] + rank[classID] + 1; j<firstOf[classID] + _instance.getClusters(classID); ++j)
+					upper[j] = 0;
+			}
+			
+			for(int j=0; j<n; ++j) if( isOutside(i, j) )
+			{
+				upper = upper == ones ? Arrays.copyOf(ones, n) : upper;
+				upper[j] = 0;
+			}
+			
+			rank[classID]++;
+	    	z[i] = variables(n, zeros, upper, true, names("z", i, -1, n));
+		}
 
+		// A coordinate outside the range of a box fixes the side the point lies on
+		double[] fixed = new double[d];
+		
 		for(int i=0; i<p; ++i)
 		for(int j=0; j<n; ++j)
-		for(int t=0; t<d; ++t)
 		{
-		  	wl[i][j][t] = cplex.boolVar("wl" + i + "_" + j + "_" + t);
-		  	wr[i][j][t] = cplex.boolVar("wr" + i + "_" + j + "_" + t);
+			if( isOutside(i, j) == false )
+			{
+			  	wl[i][j] = variables(d, zeros, ones, true, names("wl", i, j, d));
+			  	wr[i][j] = variables(d, zeros, ones, true, names("wr", i, j, d));
+			  	continue;
+			}
+			
+			for(int t=0; t<d; ++t)
+				fixed[t] = _store.get(i, t) < _low[j][t] ? 1 : 0;
+			
+		  	wl[i][j] = variables(d, fixed, fixed, true, names("wl", i, j, d));
+			
+			for(int t=0; t<d; ++t)
+				fixed[t] = _store.get(i, t) > _high[j][t] ? 1 : 0;
+			
+		  	wr[i][j] = variables(d, fixed, fixed, true, names("wr", i, j, d));
 		}
 
 		for(int j=0; j<n; ++j)
-		for(int t=0; t<d; ++t)
-	    	r[j][t] = cplex.numVar(_instance.min(t), _instance.max(t), "r" + j + "_" + t);
+	    	r[j] = variables(d, _low[j], _high[j], false, names("r", j, -1, d));
 
 	    for(int j=0; j<n; ++j)
-		for(int t=0; t<d; ++t)
-	    	l[j][t] = cplex.numVar(_instance.min(t), _instance.max(t), "l" + j + "_" + t);
+	    	l[j] = variables(d, _low[j], _high[j], false, names("l", j, -1, d));
 	}
-
-	private void createOrderingConstraints() throws IloException
+	
+	// Computes the range of each box; an optimal box never needs to leave the bounding box of its class
+	private void computeBounds()
 	{
-		for(int j=0; j<n; ++j)
+		_low = new double[n][d];
+		_high = new double[n][d];
+		
+		double[][] min = new double[c][d];
+		double[][] max = new double[c][d];
+		
+		for(int k=0; k<c; ++k)
 		for(int t=0; t<d; ++t)
 		{
-			IloNumExpr lhs = cplex.linearIntExpr();
-
-			lhs = cplex.sum(lhs, l[j][t]);
-			lhs = cplex.sum(lhs, cplex.prod(-1, r[j][t]));
+			min[k][t] = _tighten ? Double.POSITIVE_INFINITY : _instance.min(t);
+			max[k][t] = _tighten ? Double.NEGATIVE_INFINITY : _instance.max(t);
+		}
+		
+		if( _tighten )
+		for(int i=0; i<p; ++i)
+		for(int t=0; t<d; ++t)
+		{
+			min[_store.getClassID(i)][t] = Math.min(min[_store.getClassID(i)][t], _store.get(i, t));
+			max[_store.getClassID(i)][t] = Math.max(max[_store.getClassID(i)][t], _store.get(i, t));
+		}
+		
+		for(int j=0; j<n; ++j)
+		{
+			// A class without points keeps the instance range
+			boolean empty = min[classOf[j]][0] > max[classOf[j]][0];
 			
-			cplex.addLe(lhs, 0);
+			for(int t=0; t<d; ++t)
+			{
+				_low[j][t] = empty ? _instance.min(t) : min[classOf[j]][t];
+				_high[j][t] = empty ? _instance.max(t) : max[classOf[j]][t];
+			}
 		}
 	}
 	
-	private void createBindingLRWConstraints() throws IloException
+	// Whether point i lies outside the range of box j, so box j can never cover it
+	private boolean isOutside(int i, int j)
+	{
+		for(int t=0; t<d; ++t) if( _store.get(i, t) < _low[j][t] || _store.get(i, t) > _high[j][t] )
+			return true;
+		
+		return false;
+	}
+	
+	private int[] variables(int count, double[] lower, double[] upper, boolean integer, String[] names)
+	{
+		int first = _backend.addVariables(count, Arrays.copyOf(lower, count), Arrays.copyOf(upper, count), integer, names);
+		
+		int[] ret = new int[count];
+		for(int k=0; k<count; ++k)
+			ret[k] = first + k;
+		
+		return ret;
+	}
+	
+	// Names of a row of variables, or null when variables are not named
+	private String[] names(String prefix, int first, int second, int count)
+	{
+		if( _names == false )
+			return null;
+		
+		String[] ret = new String[count];
+		for(int k=0; k<count; ++k)
+			ret[k] = prefix + first + "_" + (second >= 0 ? second + "_" : "") + k;
+		
+		return ret;
+	}
+
+	private void createOrderingConstraints()
+	{
+		for(int j=0; j<n; ++j)
+		for(int t=0; t<d; ++t)
+			_backend.addConstraint(new int[] { l[j][t], r[j][t] }, new double[] { 1, -1 }, Double.NEGATIVE_INFINITY, 0, null);
+	}
+	
+	// With Ordering, the lower sides of consecutive boxes of the same class are sorted on the first coordinate
+	private void createSymmetryConstraints()
 	{
+		if( _symmetry != Symmetry.Ordering )
+			return;
+		
+		for(int j=0; j+1<n; ++j) if( classOf[j] == classOf[j+1] )
+			_backend.addConstraint(new int[] { l[j][0], l[j+1][0] }, new double[] { 1, -1 }, Double.NEGATIVE_INFINITY, 0, null);
+	}
+	
+	private void createBindingLRWConstraints()
+	{
+		double[] M = new double[d];
+		for(int t=0; t<d; ++t)
+			M[t] = _instance.max(t) - _instance.min(t);
+		
 		for(int i=0; i<p; ++i)
-	    for(int j=0; j<n; ++j)
+	    for(int j=0; j<n; ++j) if( isOutside(i, j) == false )
 		for(int t=0; t<d; ++t)
 		{
-			double M = _instance.max(t) - _instance.min(t);
+			double x = _store.get(i, t);
 			
-			IloNumExpr lhs1 = cplex.linearIntExpr();
-			lhs1 = cplex.sum(lhs1, l[j][t]);
-			lhs1 = cplex.sum(lhs1, cplex.prod(-M, wl[i][j][t]));
-			cplex.addLe(lhs1, _instance.getPoint(i).get(t));
-
-			IloNumExpr lhs2 = cplex.linearIntExpr();
-			lhs2 = cplex.sum(lhs2, r[j][t]);
-			lhs2 = cplex.sum(lhs2, cplex.prod(M, wr[i][j][t]));
-			cplex.addGe(lhs2, _instance.getPoint(i).get(t));
-
-			IloNumExpr lhs3 = cplex.linearIntExpr();
-			lhs3 = cplex.sum(lhs3, l[j][t]);
-			lhs3 = cplex.sum(lhs3, cplex.prod(-M, wl[i][j][t]));
-			cplex.addGe(lhs3, _instance.getPoint(i).get(t) - M);
-
-			IloNumExpr lhs4 = cplex.linearIntExpr();
-			lhs4 = cplex.sum(lhs4, r[j][t]);
-			lhs4 = cplex.sum(lhs4, cplex.prod(M, wr[i][j][t]));
-			cplex.addLe(lhs4, _instance.getPoint(i).get(t) + M);
+			// Big-M values for the sides moving above and below x, each bounded by the range of the box
+			double above = _tighten ? _high[j][t] - x : M[t];
+			double below = _tighten ? x - _low[j][t] : M[t];
+			
+			// Pairs of big-M rows with the same coefficient are added as a single ranged row
+			if( above == below )
+			{
+				if( above == 0 )
+					continue;
+				
+				addBinding(i, j, new int[] { l[j][t], wl[i][j][t] }, new double[] { 1, -above }, x - above, x);
+				addBinding(i, j, new int[] { r[j][t], wr[i][j][t] }, new double[] { 1, above }, x, x + above);
+				continue;
+			}
+			
+			if( above > 0 )
+			{
+				addBinding(i, j, new int[] { l[j][t], wl[i][j][t] }, new double[] { 1, -above }, Double.NEGATIVE_INFINITY, x);
+				addBinding(i, j, new int[] { r[j][t], wr[i][j][t] }, new double[] { 1, above }, Double.NEGATIVE_INFINITY, x + above);
+			}
+			
+			if( below > 0 )
+			{
+				addBinding(i, j, new int[] { l[j][t], wl[i][j][t] }, new double[] { 1, -below }, x - below, Double.POSITIVE_INFINITY);
+				addBinding(i, j, new int[] { r[j][t], wr[i][j][t] }, new double[] { 1, below }, x, Double.POSITIVE_INFINITY);
+			}
 		}
 	}
 	
-	private void createBindingWZConstraints() throws IloException
+	private void createBindingWZConstraints()
 	{
+		// Points outside the range of a box have z fixed to zero and a side variable fixed to one
 	    for(int i=0; i<p; ++i)
-	    for(int j=0; j<n; ++j)
+	    for(int j=0; j<n; ++j) if( isOutside(i, j) == false )
 		{
-			IloNumExpr lhs = cplex.linearIntExpr();
-			lhs = cplex.sum(lhs, z[i][j]);
-			
-			for(int t=0; t<d; ++t)
-			{
-				lhs = cplex.sum(lhs, wl[i][j][t]);
-				lhs = cplex.sum(lhs, wr[i][j][t]);
-			}
-			
-			cplex.addGe(lhs, 1);
+	    	int[] indexes = new int[2 * d + 1];
+	    	double[] coefficients = new double[2 * d + 1];
+	    	
+	    	indexes[0] = z[i][j];
+	    	coefficients[0] = 1;
+	    	
+	    	for(int t=0; t<d; ++t)
+	    	{
+	    		indexes[2 * t + 1] = wl[i][j][t];
+	    		indexes[2 * t + 2] = wr[i][j][t];
+	    		coefficients[2 * t + 1] = coefficients[2 * t + 2] = 1;
+	    	}
+	    	
+			addBinding(i, j, indexes, coefficients, 1, Double.POSITIVE_INFINITY);
 		}
 
 	    for(int i=0; i<p; ++i)
-	    for(int j=0; j<n; ++j)
+	    for(int j=0; j<n; ++j) if( isOutside(i, j) == false )
 		for(int t=0; t<d; ++t)
+			addBinding(i, j, new int[] { z[i][j], wl[i][j][t], wr[i][j][t] }, new double[] { 1, 1, 1 }, Double.NEGATIVE_INFINITY, 1);
+	}
+	
+	private void addBinding(int i, int j, int[] indexes, double[] coefficients, double lower, double upper)
+	{
+		if( isEager(i, j) )
+		{
+			_backend.addConstraint(indexes, coefficients, lower, upper, null);
+		}
+		else
 		{
-			IloNumExpr lhs = cplex.linearIntExpr();
-			lhs = cplex.sum(lhs, z[i][j]);
-			lhs = cplex.sum(lhs, wl[i][j][t]);
-			lhs = cplex.sum(lhs, wr[i][j][t]);
-			cplex.addLe(lhs, 1);
+			_backend.addLazyConstraint(indexes, coefficients, lower, upper);
+			_lazyRows++;
 		}
 	}
+	
+	// In lazy mode, only the rows binding a point to a box of its own class or to a nearby initial box are added upfront
+	private boolean isEager(int i, int j)
+	{
+		if( _lazy == false || classOf[j] == _store.getClassID(i) )
+			return true;
+		
+		if( _startClusters == null || _startClusters[j] == null )
+			return false;
+		
+		for(int t=0; t<d; ++t)
+		{
+			double slack = _margin * (_instance.max(t) - _instance.min(t));
+			if( _store.get(i, t) < _startLower[j][t] - slack || _store.get(i, t) > _startUpper[j][t] + slack )
+				return false;
+		}
+		
+		return true;
+	}
 
-	private void createClusteringConstraints() throws IloException
+	private void createClusteringConstraints()
 	{
-		for(int i=0; i<p; ++i)
+		// Points of classes without clusters only act as foreign points
+		for(int i=0; i<p; ++i) if( _instance.getClusters(_store.getClassID(i)) > 0 )
 	    {
-			IloNumExpr lhs = cplex.linearIntExpr();
+			int[] indexes = new int[n];
+			int count = 0;
 			
-		    for(int j=0; j<n; ++j) if( classOf[j] == _instance.getPoint(i).getClassID() )
-		    	lhs = cplex.sum(lhs, z[i][j]);
+		    for(int j=0; j<n; ++j) if( classOf[j] == _store.getClassID(i) )
+		    	indexes[count++] = z[i][j];
 		    
-		    cplex.addEq(lhs, 1, "clus" + i);
+			double[] coefficients = new double[count];
+			Arrays.fill(coefficients, 1);
+		    
+			_backend.addConstraint(Arrays.copyOf(indexes, count), coefficients, 1, 1, _names ? "clus" + i : null);
 	    }
 	}
 	
-	private void createObjective() throws IloException
+	private void createObjective()
 	{
-		IloNumExpr fobj = cplex.linearNumExpr();
+		int[] indexes = new int[p * n];
+		double[] coefficients = new double[p * n];
+		int count = 0;
 
+		// Points standing for several merged points count once for each of them
+		for(int i=0; i<p; ++i)
+		for(int j=0; j<n; ++j) if( classOf[j] != _store.getClassID(i) )
+		{
+			indexes[count] = z[i][j];
+			coefficients[count++] = _weights != null ? _weights[i] : 1;
+		}
+		
+		_backend.setObjective(Arrays.copyOf(indexes, count), Arrays.copyOf(coefficients, count));
+	}
+
+	// Places the clusters of the initial solution on the model clusters, taking the bounding box of each cluster
+	private void placeInitialSolution()
+	{
+		_startLower = null;
+		_startUpper = null;
+		_startClusters = null;
+		
+		if( _initial == null )
+			return;
+		
+		double[][] lower = new double[n][d];
+		double[][] upper = new double[n][d];
+		Cluster[] clusters = new Cluster[n];
+		
+		for(int j=0; j<n; ++j)
+		for(int t=0; t<d; ++t)
+			lower[j][t] = upper[j][t] = _low[j][t];
+		
+		// Nonempty clusters are placed in the order required by the symmetry breaking, unused boxes are left degenerate
+		for(int k=0; k<c; ++k)
+		{
+			final int classID = k;
+			List<Cluster> members = _initial.getClusters().stream().filter(cluster -> cluster.size() > 0 && cluster.getClassID() == classID).collect(Collectors.toList());
+			
+			if( members.size() > _instance.getClusters(k) )
+			{
+				System.out.println("Initial solution has too many clusters of class " + k + ", ignored");
+				return;
+			}
+			
+			if( _symmetry == Symmetry.Ordering )
+				members.sort(Comparator.comparingDouble(cluster -> cluster.getMin(0)));
+			
+			if( _symmetry == Symmetry.Points )
+				members.sort(Comparator.comparingInt(cluster -> firstPoint(cluster)));
+			
+			// Degenerate boxes sit at the lowest corner of their range, so they come first when ordering by the lower side
+			int offset = firstOf[k] + (_symmetry == Symmetry.Ordering ? _instance.getClusters(k) - members.size() : 0);
+			
+			for(int m=0; m<members.size(); ++m)
+			{
+				clusters[offset + m] = members.get(m);
+				for(int t=0; t<d; ++t)
+				{
+					lower[offset + m][t] = members.get(m).getMin(t);
+					upper[offset + m][t] = members.get(m).getMax(t);
+				}
+			}
+		}
+		
+		_startLower = lower;
+		_startUpper = upper;
+		_startClusters = clusters;
+	}
+	
+	// Derives z, l, r, wl and wr from the placed initial solution
+	private void createMipStart()
+	{
+		double[][] lower = _startLower;
+		double[][] upper = _startUpper;
+		Cluster[] clusters = _startClusters;
+		
+		int size = p * n * (2 * d + 1) + 2 * n * d;
+		int[] indexes = new int[size];
+		double[] values = new double[size];
+		int count = 0;
+		
+		for(int j=0; j<n; ++j)
+		for(int t=0; t<d; ++t)
+		{
+			indexes[count] = l[j][t];
+			values[count++] = lower[j][t];
+			indexes[count] = r[j][t];
+			values[count++] = upper[j][t];
+		}
+		
 		for(int i=0; i<p; ++i)
-		for(int j=0; j<n; ++j) if( classOf[j] != _instance.getPoint(i).getClassID() )
-			fobj = cplex.sum(fobj, z[i][j]);
+		{
+			boolean assigned = false;
+			
+			for(int j=0; j<n; ++j)
+			{
+				boolean inside = true;
+				for(int t=0; t<d; ++t)
+					inside &= lower[j][t] < _store.get(i, t) && _store.get(i, t) < upper[j][t];
+				
+				// Points on the border of a box do not need to belong to it
+				boolean member = classOf[j] == _store.getClassID(i) ? clusters[j] != null && clusters[j].contains(_instance, i) : inside;
+				assigned |= member && classOf[j] == _store.getClassID(i);
+				
+				indexes[count] = z[i][j];
+				values[count++] = member ? 1 : 0;
+				
+				// Outside the box, wl and wr record a coordinate at or beyond the lower or upper side
+				boolean outside = isOutside(i, j);
+				
+				for(int t=0; t<d; ++t)
+				{
+					double x = _store.get(i, t);
+					boolean left = outside ? x < _low[j][t] : member == false && x <= lower[j][t];
+					boolean right = outside ? x > _high[j][t] : member == false && left == false && x >= upper[j][t];
+					
+					indexes[count] = wl[i][j][t];
+					values[count++] = left ? 1 : 0;
+					indexes[count] = wr[i][j][t];
+					values[count++] = right ? 1 : 0;
+				}
+			}
+			
+			if( assigned == false && _instance.getClusters(_store.getClassID(i)) > 0 )
+			{
+				System.out.println("Initial solution does not cover point " + i + ", ignored");
+				return;
+			}
+		}
 		
-		cplex.addMinimize(fobj);
+		_backend.addMipStart(indexes, values);
 	}
 
-	private void solveModel() throws IloException
+	// Lowest instance index among the points of the cluster
+	private int firstPoint(Cluster cluster)
+	{
+		for(int i=0; i<p; ++i) if( cluster.contains(_instance, i) )
+			return i;
+		
+		return p;
+	}
+
+	private void solveModel()
 	{
 		long start = System.currentTimeMillis();
 		
- 		cplex.setParam(IntParam.TimeLimit, _maxTime);
-		cplex.solve();
+		_backend.setTimeLimit(Math.max(0, Math.min(_maxTime, (_deadline - System.currentTimeMillis()) / 1000.0)));
+		_backend.solve();
+		
+		MipBackend.Status status = _backend.getStatus();
+		_status = status;
+		_objective = _backend.getObjValue();
+		_bound = _backend.getBestBound();
+		_nodes = _backend.getNodes();
+		_elapsed = (System.currentTimeMillis() - start) / 1000.0;
+		boolean solved = status == MipBackend.Status.Optimal || status == MipBackend.Status.Feasible;
 		
 		if( _summary == false )
 		{
-			System.out.println("Status: " + cplex.getStatus());
-			System.out.println("Objective: " + String.format("%6.4f", cplex.getObjValue()));
+			System.out.println("Status: " + status);
+			System.out.println("Objective: " + String.format("%6.4f", _backend.getObjValue()));
 			System.out.println("Time: " + String.format("%6.2f", (System.currentTimeMillis() - start) / 1000.0));
-			System.out.println("Nodes: " + cplex.getNnodes());
-			System.out.println("Gap: " + ((cplex.getStatus() == Status.Optimal || cplex.getStatus() == Status.Feasible) && cplex.getMIPRelativeGap() < 1e30 ? String.format("%6.2f", 100 * cplex.getMIPRelativeGap()) : "  ****"));
-			System.out.println("Cuts: " + cplex.getNcuts(IloCplex.CutType.User));
+			System.out.println("Nodes: " + _backend.getNodes());
+			System.out.println("Gap: " + (solved && _backend.getGap() < 1e30 ? String.format("%6.2f", 100 * _backend.getGap()) : "  ****"));
+			System.out.println("Cuts: " + _backend.getCuts());
+			System.out.println("Build time: " + String.format("%6.2f", _buildTime));
+			System.out.println("Build allocation: " + _buildAllocated / (1024 * 1024) + " MB");
+			System.out.println("Symmetry: " + _symmetry);
+			System.out.println("Lazy rows: " + _lazyRows);
 		}
 		else
 		{
 			System.out.print(_instance.getName() + " | MIP | ");
-			System.out.print(cplex.getStatus() + " | ");
-			System.out.print("Obj: " + String.format("%6.4f", cplex.getObjValue()) + " | ");
+			System.out.print(status + " | ");
+			System.out.print("Obj: " + String.format("%6.4f", _backend.getObjValue()) + " | ");
 			System.out.print(String.format("%6.2f", (System.currentTimeMillis() - start) / 1000.0) + " sec. | ");
-			System.out.print(cplex.getNnodes() + " nodes | ");
-			System.out.print(((cplex.getStatus() == Status.Optimal || cplex.getStatus() == Status.Feasible) && cplex.getMIPRelativeGap() < 1e30 ? String.format("%6.2f", 100 * cplex.getMIPRelativeGap()) + " % | " : "  **** | "));
-			System.out.print(cplex.getNcuts(IloCplex.CutType.User) + " cuts | ");
+			System.out.print(_backend.getNodes() + " nodes | ");
+			System.out.print((solved && _backend.getGap() < 1e30 ? String.format("%6.2f", 100 * _backend.getGap()) + " % | " : "  **** | "));
+			System.out.print(_backend.getCuts() + " cuts | ");
+			System.out.print(String.format("%6.2f", _buildTime) + " build sec. | ");
+			System.out.print(_buildAllocated / (1024 * 1024) + " build alloc MB | ");
+			System.out.print("sym: " + _symmetry + " | ");
+			System.out.print(_lazyRows + " lazy rows | ");
 			System.out.println();
 		}
 	}
 
-	private void obtainSolution() throws IloException, UnknownObjectException
+	private void obtainSolution()
 	{
 		_solution = new Solution();
 		
-    	if( cplex.getStatus() == Status.Optimal || cplex.getStatus() == Status.Feasible )
-		{
-	    	for(int j=0; j<n; ++j)
-	    	{
-	    		Cluster cluster = new Cluster();
-	    		
-				for(int i=0; i<p; ++i) if( cplex.getValue(z[i][j]) > 0.9 && classOf[j] == _instance.getPoint(i).getClassID() )
-					cluster.add(_instance.getPoint(i));
-				
-				_solution.add(cluster);
-		    }
-		}
+    	if( _backend.getStatus() == MipBackend.Status.Optimal || _backend.getStatus() == MipBackend.Status.Feasible )
+    		_solution = solutionFrom(index -> _backend.getValue(index));
     }
 	
+	// Builds the clusters from the values of the z variables
+	private Solution solutionFrom(IntToDoubleFunction value)
+	{
+		Solution ret = new Solution();
+		
+    	for(int j=0; j<n; ++j)
+    	{
+    		Cluster cluster = new Cluster();
+    		
+			for(int i=0; i<p; ++i) if( value.applyAsDouble(z[i][j]) > 0.9 && classOf[j] == _store.getClassID(i) )
+				cluster.add(_instance, i);
+			
+			ret.add(cluster);
+	    }
+    	
+    	return ret;
+	}
+	
+	// Bytes allocated so far by the current thread, or 0 when the JVM does not track it. Unlike the used heap, it does
+	// not depend on garbage collections or on other threads building models at the same time
+	private static long allocatedBytes()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		
+		if( bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemoryEnabled() )
+			return ((com.sun.management.ThreadMXBean)bean).getCurrentThreadAllocatedBytes();
+		
+		return 0;
+	}
+	
 	public void closeSolver()
 	{
-		cplex.end();
+		_backend.end();
+		_backend = null;
 	}
 	
 	public void setVerbose(boolean verbose)
@@ -284,6 +859,126 @@ public class RectangularModel
 		_summary = summary;
 	}
 	
+	// Naming variables and constraints is only needed to export or debug the model
+	public void setNames(boolean names)
+	{
+		_names = names;
+	}
+	
+	public double getBuildTime()
+	{
+		return _buildTime;
+	}
+	
+	// Bytes allocated while building the model, summed over the subproblems when decomposing
+	public long getBuildAllocated()
+	{
+		return _buildAllocated;
+	}
+	
+	// Solution passed to the backend as a MIP start, typically the heuristic one
+	public void setInitialSolution(Solution solution)
+	{
+		_initial = solution;
+	}
+	
+	// Objective weight of each point, such as the multiplicities given by general.Reduction
+	public void setWeights(int[] weights)
+	{
+		_weights = weights;
+	}
+	
+	public void setSymmetryBreaking(Symmetry symmetry)
+	{
+		_symmetry = symmetry;
+	}
+	
+	// Binding rows of points far from the boxes are left to the solver as lazy constraints
+	public void setLazy(boolean lazy)
+	{
+		_lazy = lazy;
+	}
+	
+	// Fraction of the instance span around the initial boxes within which binding rows stay eager
+	public void setLazyMargin(double margin)
+	{
+		_margin = margin;
+	}
+	
+	// Bounds each box by the bounding box of its class and derives per-point big-M values from it
+	public void setTightening(boolean tighten)
+	{
+		_tighten = tighten;
+	}
+	
+	// Solves one model per class on a pool of threads and merges the clusters
+	public void setDecomposition(boolean decompose)
+	{
+		_decompose = decompose;
+	}
+	
+	public void setThreads(int threads)
+	{
+		_threads = threads;
+	}
+	
+	public MipBackend.Status getStatus()
+	{
+		return _status;
+	}
+	
+	public double getObjective()
+	{
+		return _objective;
+	}
+	
+	public double getBestBound()
+	{
+		return _bound;
+	}
+	
+	public long getNodes()
+	{
+		return _nodes;
+	}
+	
+	// Solving time in seconds, without building the model
+	public double getElapsedTime()
+	{
+		return _elapsed;
+	}
+	
+	// Receives each improving incumbent, from the solver thread
+	public void setListener(SolutionListener listener)
+	{
+		_listener = listener;
+	}
+	
+	// Absolute time, as given by System.currentTimeMillis(), after which the solver stops with its best solution
+	public void setDeadline(long deadline)
+	{
+		_deadline = deadline;
+	}
+	
+	// Stops the solver with its best solution so far, may be called from any thread
+	public void cancel()
+	{
+		_cancelled = true;
+		
+		MipBackend backend = _backend;
+		if( backend != null )
+			backend.abort();
+		
+		for(RectangularModel subproblem: _subproblems)
+			subproblem.cancel();
+	}
+	
+	// MIP backend: "cplex", "bnb" (pure Java branch and bound) or "auto"
+	public void setBackend(String name)
+	{
+		_backendName = name;
+	}
+	
 	public void setMaxTime(int value)
 	{
 		_maxTime = value;
@@ -0,0 +1,92 @@
+package general;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BinaryInstanceTest
+{
+	@TempDir
+	Path _directory;
+
+	@Test
+	public void roundTrip() throws IOException
+	{
+		Instance instance = RandomInstance.generate(3, 500, 2, 1.0, 4);
+		instance.setClusters(1, 5);
+
+		String path = _directory.resolve("random.bin").toString();
+		BinaryInstance.write(instance, path);
+		Instance read = BinaryInstance.read(path);
+
+		assertEquals(instance.getName(), read.getName());
+		assertEquals(instance.getClasses(), read.getClasses());
+		assertEquals(2, read.getClusters(0));
+		assertEquals(5, read.getClusters(1));
+		assertStoresEqual(instance.getStore(), read.getStore());
+	}
+
+	// One point is larger than the default write buffer of 1 MB
+	@Test
+	public void roundTripLongRows() throws IOException
+	{
+		int dimension = 200000;
+		Instance instance = new Instance("long rows", 2, 1);
+
+		for(int i=0; i<3; ++i)
+		{
+			Point point = new Point(i + 1, i % 2, dimension);
+			for(int t=0; t<dimension; ++t)
+				point.set(t, i * dimension + t);
+
+			instance.add(point);
+		}
+
+		String path = _directory.resolve("long.bin").toString();
+		BinaryInstance.write(instance, path);
+
+		assertStoresEqual(instance.getStore(), BinaryInstance.read(path).getStore());
+	}
+
+	@Test
+	public void rejectsTruncatedFile() throws IOException
+	{
+		Path path = _directory.resolve("truncated.bin");
+		BinaryInstance.write(RandomInstance.generate(2, 50, 2, 1.0, 5), path.toString());
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+		{
+			channel.truncate(channel.size() - 4);
+		}
+
+		assertThrows(RuntimeException.class, () -> BinaryInstance.read(path.toString()));
+	}
+
+	private static void assertStoresEqual(PointStore expected, PointStore actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.getDimension(), actual.getDimension());
+
+		for(int i=0; i<expected.size(); ++i)
+		{
+			assertEquals(expected.getId(i), actual.getId(i));
+			assertEquals(expected.getClassID(i), actual.getClassID(i));
+
+			int dimension = expected.getDimension();
+			double[] values = new double[dimension];
+			double[] read = new double[dimension];
+
+			System.arraycopy(expected.getCoordinates(), expected.offset(i), values, 0, dimension);
+			System.arraycopy(actual.getCoordinates(), actual.offset(i), read, 0, dimension);
+			assertArrayEquals(values, read);
+		}
+	}
+}
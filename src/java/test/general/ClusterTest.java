@@ -0,0 +1,99 @@
+package general;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ClusterTest
+{
+	// Points of class 0 at (0, 0), (2, 1), (4, 3) and a point of class 1 at (1, 1)
+	private static Instance instance()
+	{
+		Instance ret = new Instance("cluster", 2, 1);
+		ret.add(Point.fromVector(1, 0, 0, 0));
+		ret.add(Point.fromVector(2, 0, 2, 1));
+		ret.add(Point.fromVector(3, 0, 4, 3));
+		ret.add(Point.fromVector(4, 1, 1, 1));
+		return ret;
+	}
+
+	// Membership is by index in an instance, a point built on its own has none
+	@Test
+	public void rejectsStandalonePoint()
+	{
+		Cluster cluster = new Cluster();
+		assertThrows(RuntimeException.class, () -> cluster.add(Point.fromVector(1, 0, 1, 2)));
+
+		Instance instance = instance();
+		cluster.add(instance.getPoint(0));
+		assertTrue(cluster.contains(instance.getPoint(0)));
+		assertFalse(cluster.contains(Point.fromVector(1, 0, 0, 0)));
+	}
+
+	@Test
+	public void shrinksAfterRemoval()
+	{
+		Instance instance = instance();
+		Cluster cluster = Cluster.fromArray(instance, 0, 1, 2);
+
+		assertEquals(4, cluster.max(0));
+		assertEquals(1, cluster.countMisclassified(instance));
+
+		cluster.remove(instance.getPoint(2));
+		assertEquals(2, cluster.max(0));
+		assertEquals(1, cluster.max(1));
+		assertArrayEquals(new double[] { 1, 0.5 }, cluster.centroid().getValues());
+
+		cluster.remove(instance.getPoint(0));
+		assertEquals(0, cluster.countMisclassified(instance));
+	}
+
+	// setMin/setMax move the box of getMin/getMax only, min/max and the coverage follow the members
+	@Test
+	public void keepsOverridesApart()
+	{
+		Instance instance = instance();
+		Cluster cluster = Cluster.fromArray(instance, 0, 1, 2);
+
+		cluster.setMin(0, -1);
+		cluster.setMax(1, 5);
+		assertEquals(-1, cluster.getMin(0));
+		assertEquals(5, cluster.getMax(1));
+		assertEquals(0, cluster.min(0));
+		assertEquals(3, cluster.max(1));
+
+		cluster.remove(instance.getPoint(2));
+		assertEquals(-1, cluster.getMin(0));
+		assertEquals(2, cluster.getMax(0));
+		assertEquals(5, cluster.getMax(1));
+		assertEquals(1, cluster.max(1));
+		assertEquals(1, cluster.countMisclassified(instance));
+
+		cluster.clear();
+		cluster.add(instance, 1);
+		assertEquals(2, cluster.getMin(0));
+	}
+
+	@Test
+	public void mergesLikeUnion()
+	{
+		Instance instance = instance();
+		Cluster merged = Cluster.fromArray(instance, 0);
+		merged.merge(Cluster.fromArray(instance, 1, 2));
+
+		Cluster expected = Cluster.fromArray(instance, 0, 1, 2);
+		assertEquals(expected, merged);
+		assertEquals(3, merged.size());
+		assertArrayEquals(expected.centroid().getValues(), merged.centroid().getValues());
+
+		for(int t=0; t<2; ++t)
+		{
+			assertEquals(expected.min(t), merged.min(t));
+			assertEquals(expected.max(t), merged.max(t));
+		}
+	}
+}
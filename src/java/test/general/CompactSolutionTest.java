@@ -0,0 +1,55 @@
+package general;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Deltas against the objective of the rebuilt Solution, over random moves and swaps
+public class CompactSolutionTest
+{
+	private static final int _clusters = 6;
+
+	@Test
+	public void deltasMatchRebuiltSolution()
+	{
+		Instance instance = RandomInstance.generate(2, 150, 3, 1.5, 9);
+		PointStore store = instance.getStore();
+		Random random = new Random(10);
+
+		// Cluster j only takes points of class j % 2
+		CompactSolution solution = new CompactSolution(instance, _clusters);
+		for(int i=0; i<store.size(); ++i)
+			solution.move(i, store.getClassID(i) + 2 * random.nextInt(_clusters / 2));
+
+		assertEquals(solution.toSolution().misclassified(instance), solution.getObjective());
+		assertEquals(solution.getObjective(), CompactSolution.fromSolution(instance, solution.toSolution()).getObjective());
+
+		for(int step=0; step<500; ++step)
+		{
+			int before = solution.getObjective();
+			int i = random.nextInt(store.size());
+			int delta;
+
+			if( random.nextBoolean() )
+			{
+				int j = random.nextInt(10) == 0 ? -1 : store.getClassID(i) + 2 * random.nextInt(_clusters / 2);
+				delta = solution.deltaMove(i, j);
+				solution.move(i, j);
+			}
+			else
+			{
+				int k = random.nextInt(store.size());
+				if( store.getClassID(k) != store.getClassID(i) )
+					continue;
+
+				delta = solution.deltaSwap(i, k);
+				solution.swap(i, k);
+			}
+
+			assertEquals(before + delta, solution.getObjective(), "step " + step);
+			assertEquals(solution.toSolution().misclassified(instance), solution.getObjective(), "step " + step);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package general;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import model.MipBackend;
+import model.RectangularModel;
+
+public class ReductionTest
+{
+	// Points on a small grid repeat, class 0 has one cluster so its interior points can be removed. Classes take even and
+	// odd coordinates, so no point lies on the border of a box of the other class, where the model and
+	// Solution.misclassified() would count it differently
+	private static Instance instance(int seed)
+	{
+		Random random = new Random(seed);
+		Instance ret = new Instance("grid " + seed, 2, 1);
+		ret.setClusters(1, 2);
+
+		for(int i=0; i<20; ++i)
+		{
+			int classID = random.nextInt(2);
+			ret.add(Point.fromVector(i + 1, classID, 2 * random.nextInt(4) + classID, 2 * random.nextInt(4) + classID));
+		}
+
+		return ret;
+	}
+
+	@Test
+	public void expandKeepsOptimum()
+	{
+		for(int seed=0; seed<4; ++seed)
+		{
+			Instance instance = instance(seed);
+			Reduction reduction = new Reduction(instance);
+			Instance reduced = reduction.reduce();
+
+			assertTrue(reduced.getPoints() < instance.getPoints(), instance.getName());
+
+			RectangularModel original = model(instance);
+			original.solve();
+
+			RectangularModel model = model(reduced);
+			model.setWeights(reduction.getWeights());
+			Solution expanded = reduction.expand(model.solve());
+
+			assertEquals(MipBackend.Status.Optimal, model.getStatus(), instance.getName());
+			assertEquals(original.getObjective(), model.getObjective(), 1e-6, instance.getName());
+			assertEquals(Math.round(model.getObjective()), expanded.misclassified(instance), instance.getName());
+
+			// Every original point lands in exactly one cluster of its class
+			int[] count = new int[instance.getPoints()];
+			for(Cluster cluster : expanded.getClusters())
+				for(int i : cluster.getIndexes())
+				{
+					assertEquals(instance.getStore().getClassID(i), cluster.getClassID());
+					count[i]++;
+				}
+
+			for(int i=0; i<count.length; ++i)
+				assertEquals(1, count[i], instance.getName() + " point " + i);
+		}
+	}
+
+	private static RectangularModel model(Instance instance)
+	{
+		RectangularModel ret = new RectangularModel(instance);
+		ret.setBackend("bnb");
+		ret.setVerbose(false);
+		ret.showSummary(true);
+		ret.setMaxTime(60);
+		return ret;
+	}
+}
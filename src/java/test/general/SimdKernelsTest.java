@@ -0,0 +1,101 @@
+package general;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The vector kernels against the scalar ones, over dimensions and counts that leave partial vectors and blocks
+public class SimdKernelsTest
+{
+	private Kernels _simd = new SimdKernels();
+	private boolean _previous;
+
+	@BeforeEach
+	public void useScalar()
+	{
+		_previous = Vectors.isSimd();
+		Vectors.setSimd(false);
+	}
+
+	@AfterEach
+	public void restore()
+	{
+		Vectors.setSimd(_previous);
+	}
+
+	@Test
+	public void distancesMatchScalar()
+	{
+		Random random = new Random(7);
+
+		for(int dimension=1; dimension<=37; ++dimension)
+			for(int count=1; count<=9; ++count)
+			{
+				double[] point = randomArray(random, 3 + dimension);
+				double[] others = randomArray(random, count * dimension);
+				double[] simd = new double[count];
+				double[] scalar = new double[count];
+
+				_simd.squaredDistances(point, 3, others, count, dimension, simd);
+				Vectors.squaredDistances(point, 3, others, count, dimension, scalar);
+
+				for(int k=0; k<count; ++k)
+				{
+					assertEquals(scalar[k], simd[k], 1e-12 * scalar[k], "dimension " + dimension + " count " + count);
+					assertEquals(scalar[k], _simd.squaredDistance(point, 3, others, k * dimension, dimension), 1e-12 * scalar[k]);
+				}
+			}
+	}
+
+	// Coordinates on a coarse grid, so that points often lie on the border of the box
+	@Test
+	public void containmentMatchesScalar()
+	{
+		Random random = new Random(8);
+
+		for(int dimension=1; dimension<=19; ++dimension)
+		{
+			int points = 200;
+			double[] coordinates = new double[points * dimension];
+			for(int i=0; i<coordinates.length; ++i)
+				coordinates[i] = random.nextInt(5);
+
+			int[] indexes = new int[points];
+			for(int i=0; i<points; ++i)
+				indexes[i] = random.nextInt(points);
+
+			for(int test=0; test<20; ++test)
+			{
+				double[] min = new double[dimension];
+				double[] max = new double[dimension];
+				for(int t=0; t<dimension; ++t)
+				{
+					min[t] = random.nextInt(2);
+					max[t] = min[t] + random.nextInt(5);
+				}
+
+				int from = random.nextInt(points);
+				int to = from + random.nextInt(points - from + 1);
+
+				assertEquals(Vectors.countInside(min, max, coordinates, indexes, from, to, dimension),
+						_simd.countInside(min, max, coordinates, indexes, from, to, dimension), "dimension " + dimension);
+
+				for(int i=0; i<points; ++i)
+					assertEquals(Vectors.inside(min, max, coordinates, i * dimension, dimension), _simd.inside(min, max, coordinates, i * dimension, dimension));
+			}
+		}
+	}
+
+	private static double[] randomArray(Random random, int length)
+	{
+		double[] ret = new double[length];
+		for(int i=0; i<length; ++i)
+			ret[i] = random.nextGaussian() * 10;
+
+		return ret;
+	}
+}
@@ -0,0 +1,104 @@
+package general;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TextImporterTest
+{
+	@TempDir
+	Path _directory;
+
+	// Numbers in several notations must read exactly as Double.parseDouble reads them
+	@Test
+	public void readsCsv() throws IOException
+	{
+		Random random = new Random(6);
+		StringBuilder text = new StringBuilder("label,x,y,z\n");
+		String[][] fields = new String[300][3];
+
+		for(int i=0; i<fields.length; ++i)
+		{
+			fields[i][0] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+			fields[i][1] = String.format(Locale.ROOT, "%.6f", random.nextDouble() * 1000 - 500);
+			fields[i][2] = Integer.toString(random.nextInt(2000) - 1000);
+
+			text.append(i % 3 == 0 ? "\"a\"" : "b").append(',').append(String.join(",", fields[i])).append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+
+		TextImporter importer = new TextImporter();
+		importer.setHeader(true);
+		importer.setLabelColumn(0);
+		Instance instance = importer.readCsv(write("points.csv", text.toString()));
+		PointStore store = instance.getStore();
+
+		assertEquals(List.of("a", "b"), importer.getLabels());
+		assertEquals(fields.length, store.size());
+		assertEquals(3, store.getDimension());
+
+		for(int i=0; i<fields.length; ++i)
+		{
+			assertEquals(i % 3 == 0 ? 0 : 1, store.getClassID(i));
+
+			for(int t=0; t<3; ++t)
+				assertEquals(Double.parseDouble(fields[i][t]), store.get(i, t), "row " + (i + 1) + " column " + (t + 1));
+		}
+	}
+
+	@Test
+	public void rejectsMissingLabelColumn() throws IOException
+	{
+		TextImporter importer = new TextImporter();
+		importer.setLabelColumn(5);
+		String path = write("short.csv", "1,2,a\n3,4,b\n");
+
+		RuntimeException exception = assertThrows(RuntimeException.class, () -> importer.readCsv(path));
+		assertTrue(exception.getMessage().contains("label column 5"), exception.getMessage());
+	}
+
+	@Test
+	public void readsLibsvm() throws IOException
+	{
+		TextImporter importer = new TextImporter();
+		Instance instance = importer.readLibsvm(write("points.libsvm", "+1 1:0.5 3:-2e3\n# comment\n-1 2:7 # trailing\n+1\n"));
+		PointStore store = instance.getStore();
+
+		assertEquals(List.of("+1", "-1"), importer.getLabels());
+		assertEquals(3, store.size());
+		assertEquals(3, store.getDimension());
+		assertEquals(0.5, store.get(0, 0));
+		assertEquals(0, store.get(0, 1));
+		assertEquals(-2000, store.get(0, 2));
+		assertEquals(7, store.get(1, 1));
+		assertEquals(1, store.getClassID(1));
+		assertEquals(0, store.get(2, 2));
+	}
+
+	@Test
+	public void rejectsNonIntegerFeatureIndex() throws IOException
+	{
+		for(String index : new String[] { "1.5", "2e0", "0", "-1", "x" })
+		{
+			String path = write("bad.libsvm", "+1 " + index + ":3\n");
+			assertThrows(RuntimeException.class, () -> new TextImporter().readLibsvm(path), index);
+		}
+	}
+
+	private String write(String name, String text) throws IOException
+	{
+		Path path = _directory.resolve(name);
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		return path.toString();
+	}
+}
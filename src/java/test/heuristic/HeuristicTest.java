@@ -0,0 +1,65 @@
+package heuristic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import general.Instance;
+import general.RandomInstance;
+
+public class HeuristicTest
+{
+	@Test
+	public void rejectsClassWithoutClusters()
+	{
+		Instance instance = RandomInstance.generate(2, 100, 2, 1.0, 1);
+		instance.setClusters(1, 0);
+
+		Heuristic heuristic = new Heuristic(instance);
+		heuristic.setVerbose(false);
+
+		RuntimeException exception = assertThrows(RuntimeException.class, () -> heuristic.run());
+		assertFalse(exception instanceof DivergenceException);
+	}
+
+	// A cancellation made before the run starts is kept, reset() clears it
+	@Test
+	public void keepsEarlyCancellation()
+	{
+		Heuristic heuristic = new Heuristic(RandomInstance.generate(2, 200, 2, 1.0, 2));
+		heuristic.setVerbose(false);
+
+		heuristic.cancel();
+		heuristic.run();
+		assertEquals(Heuristic.Status.Cancelled, heuristic.getStatus());
+		assertEquals(1, heuristic.getIterations());
+
+		heuristic.reset();
+		heuristic.run();
+		assertEquals(Heuristic.Status.Converged, heuristic.getStatus());
+	}
+
+	// Restarts are evaluated in seed order, so the thread count does not change the result
+	@Test
+	public void multiStartIgnoresThreads()
+	{
+		Instance instance = RandomInstance.generate(2, 300, 3, 1.5, 3);
+		int[][] convergence = new int[2][];
+
+		for(int k=0; k<2; ++k)
+		{
+			MultiStart multiStart = new MultiStart(instance);
+			multiStart.setVerbose(false);
+			multiStart.setRestarts(8);
+			multiStart.setThreads(k == 0 ? 1 : 4);
+			multiStart.run();
+
+			convergence[k] = multiStart.getConvergence();
+		}
+
+		assertArrayEquals(convergence[0], convergence[1]);
+	}
+}
@@ -0,0 +1,146 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class BranchAndBoundBackendTest
+{
+	private static final int _variables = 4;
+	private static final int _range = 3;
+
+	// Random integer models over a small box, against the best of all the integer points
+	@Test
+	public void matchesEnumeration()
+	{
+		Random random = new Random(2);
+
+		for(int test=0; test<200; ++test)
+		{
+			double[][] rows = randomRows(random, 1 + random.nextInt(4));
+			double[] cost = randomCost(random);
+
+			MipBackend backend = createBackend(cost);
+			for(double[] row : rows)
+				backend.addConstraint(new int[] { 0, 1, 2, 3 }, Arrays.copyOf(row, _variables), Double.NEGATIVE_INFINITY, row[_variables], null);
+
+			check(backend, enumerate(rows, cost), "model " + test);
+		}
+	}
+
+	// The same models with every other row lazy, an integer point violating a lazy row must never be the answer
+	@Test
+	public void lazyRowsMatchEnumeration()
+	{
+		Random random = new Random(3);
+
+		for(int test=0; test<200; ++test)
+		{
+			double[][] rows = randomRows(random, 2 + random.nextInt(4));
+			double[] cost = randomCost(random);
+
+			MipBackend backend = createBackend(cost);
+			for(int i=0; i<rows.length; ++i)
+			{
+				int[] indexes = { 0, 1, 2, 3 };
+				double[] coefficients = Arrays.copyOf(rows[i], _variables);
+
+				if( i % 2 == 0 )
+					backend.addConstraint(indexes, coefficients, Double.NEGATIVE_INFINITY, rows[i][_variables], null);
+				else
+					backend.addLazyConstraint(indexes, coefficients, Double.NEGATIVE_INFINITY, rows[i][_variables]);
+			}
+
+			check(backend, enumerate(rows, cost), "model " + test);
+		}
+	}
+
+	static MipBackend createBackend(double[] cost)
+	{
+		double[] lower = new double[_variables];
+		double[] upper = new double[_variables];
+		Arrays.fill(upper, _range);
+
+		MipBackend ret = new BranchAndBoundBackend();
+		ret.setVerbose(false);
+		ret.setTimeLimit(10);
+		ret.addVariables(_variables, lower, upper, true, null);
+		ret.setObjective(new int[] { 0, 1, 2, 3 }, cost);
+		return ret;
+	}
+
+	// Each row is a x <= b, stored as the coefficients followed by b
+	static double[][] randomRows(Random random, int count)
+	{
+		double[][] ret = new double[count][_variables + 1];
+		for(double[] row : ret)
+		{
+			for(int j=0; j<_variables; ++j)
+				row[j] = random.nextInt(7) - 3;
+
+			row[_variables] = random.nextInt(9) - 2;
+		}
+
+		return ret;
+	}
+
+	static double[] randomCost(Random random)
+	{
+		double[] ret = new double[_variables];
+		for(int j=0; j<_variables; ++j)
+			ret[j] = random.nextInt(9) - 4;
+
+		return ret;
+	}
+
+	static void check(MipBackend backend, double expected, String message)
+	{
+		MipBackend.Status status = backend.solve();
+
+		if( Double.isInfinite(expected) )
+			assertEquals(MipBackend.Status.Infeasible, status, message);
+		else
+		{
+			assertEquals(MipBackend.Status.Optimal, status, message);
+			assertEquals(expected, backend.getObjValue(), 1e-6, message);
+		}
+
+		backend.end();
+	}
+
+	static double enumerate(double[][] rows, double[] cost)
+	{
+		double ret = Double.POSITIVE_INFINITY;
+		int[] x = new int[_variables];
+
+		for(int code=0; code<Math.pow(_range + 1, _variables); ++code)
+		{
+			for(int j=0, rest=code; j<_variables; ++j, rest/=_range + 1)
+				x[j] = rest % (_range + 1);
+
+			boolean feasible = true;
+			for(double[] row : rows)
+			{
+				double activity = 0;
+				for(int j=0; j<_variables; ++j)
+					activity += row[j] * x[j];
+
+				feasible &= activity <= row[_variables];
+			}
+
+			if( feasible )
+			{
+				double objective = 0;
+				for(int j=0; j<_variables; ++j)
+					objective += cost[j] * x[j];
+
+				ret = Math.min(ret, objective);
+			}
+		}
+
+		return ret;
+	}
+}
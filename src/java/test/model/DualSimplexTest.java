@@ -0,0 +1,141 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class DualSimplexTest
+{
+	private static final long _noDeadline = Long.MAX_VALUE;
+
+	@Test
+	public void solvesSmallModel()
+	{
+		// min -x - 2y s.t. x + y <= 4, x - y >= -2, on [0, 3]^2: optimum at (1, 3)
+		DualSimplex lp = new DualSimplex(2, new double[] { 0, 0 }, new double[] { 3, 3 }, new double[] { -1, -2 });
+		lp.addRow(new int[] { 0, 1 }, new double[] { 1, 1 }, Double.NEGATIVE_INFINITY, 4);
+		lp.addRow(new int[] { 0, 1 }, new double[] { 1, -1 }, -2, Double.POSITIVE_INFINITY);
+
+		assertEquals(DualSimplex.Result.Optimal, lp.solve(_noDeadline));
+		assertEquals(-7, lp.getObjective(), 1e-9);
+		assertEquals(1, lp.getValue(0), 1e-9);
+		assertEquals(3, lp.getValue(1), 1e-9);
+	}
+
+	@Test
+	public void detectsInfeasibility()
+	{
+		DualSimplex lp = new DualSimplex(2, new double[] { 0, 0 }, new double[] { 2, 2 }, new double[] { 1, 1 });
+		lp.addRow(new int[] { 0, 1 }, new double[] { 1, 1 }, 5, Double.POSITIVE_INFINITY);
+
+		assertEquals(DualSimplex.Result.Infeasible, lp.solve(_noDeadline));
+	}
+
+	@Test
+	public void reportsIterationCap()
+	{
+		DualSimplex lp = new DualSimplex(3, new double[] { 0, 0, 0 }, new double[] { 1, 1, 1 }, new double[] { 1, 1, 1 });
+		lp.addRow(new int[] { 0 }, new double[] { 1 }, 1, 1);
+		lp.addRow(new int[] { 1 }, new double[] { 1 }, 1, 1);
+		lp.addRow(new int[] { 2 }, new double[] { 1 }, 1, 1);
+		lp.setIterationLimit(2);
+
+		assertEquals(DualSimplex.Result.Failed, lp.solve(_noDeadline));
+	}
+
+	// Many rows through the same vertex make every pivot degenerate
+	@Test
+	public void solvesDegenerateModel()
+	{
+		int count = 6;
+		double[] lower = new double[count];
+		double[] upper = new double[count];
+		double[] cost = new double[count];
+		Arrays.fill(upper, 1);
+		Arrays.fill(cost, -1);
+
+		DualSimplex lp = new DualSimplex(count, lower, upper, cost);
+		for(int i=0; i<count; ++i)
+			for(int j=i+1; j<count; ++j)
+				lp.addRow(new int[] { i, j }, new double[] { 1, 1 }, Double.NEGATIVE_INFINITY, 1);
+
+		for(int j=0; j<count; ++j)
+			lp.addRow(new int[] { j }, new double[] { 1 }, Double.NEGATIVE_INFINITY, 0.5);
+
+		assertEquals(DualSimplex.Result.Optimal, lp.solve(_noDeadline));
+		assertEquals(-count / 2.0, lp.getObjective(), 1e-7);
+	}
+
+	// Random models in the plane against the best feasible vertex, vertices being intersections of two row or bound lines
+	@Test
+	public void matchesVertexEnumeration()
+	{
+		Random random = new Random(1);
+
+		for(int test=0; test<500; ++test)
+		{
+			int rows = 1 + random.nextInt(6);
+			double[][] a = new double[rows][2];
+			double[] rhs = new double[rows];
+			double[] cost = { random.nextInt(11) - 5, random.nextInt(11) - 5 };
+
+			DualSimplex lp = new DualSimplex(2, new double[] { -5, -5 }, new double[] { 5, 5 }, cost);
+			for(int i=0; i<rows; ++i)
+			{
+				a[i][0] = random.nextInt(9) - 4;
+				a[i][1] = random.nextInt(9) - 4;
+				rhs[i] = random.nextInt(13) - 4;
+				lp.addRow(new int[] { 0, 1 }, a[i], Double.NEGATIVE_INFINITY, rhs[i]);
+			}
+
+			double expected = bestVertex(a, rhs, cost);
+			DualSimplex.Result result = lp.solve(_noDeadline);
+
+			if( Double.isInfinite(expected) )
+				assertEquals(DualSimplex.Result.Infeasible, result, "model " + test);
+			else
+			{
+				assertEquals(DualSimplex.Result.Optimal, result, "model " + test);
+				assertEquals(expected, lp.getObjective(), 1e-7, "model " + test);
+			}
+		}
+	}
+
+	private static double bestVertex(double[][] a, double[] rhs, double[] cost)
+	{
+		// Rows a x <= rhs followed by the bounds -5 <= x, y <= 5
+		int rows = a.length + 4;
+		double[][] lines = new double[rows][];
+		for(int i=0; i<a.length; ++i)
+			lines[i] = new double[] { a[i][0], a[i][1], rhs[i] };
+
+		lines[a.length] = new double[] { 1, 0, 5 };
+		lines[a.length + 1] = new double[] { -1, 0, 5 };
+		lines[a.length + 2] = new double[] { 0, 1, 5 };
+		lines[a.length + 3] = new double[] { 0, -1, 5 };
+
+		double ret = Double.POSITIVE_INFINITY;
+		for(int i=0; i<rows; ++i)
+			for(int j=i+1; j<rows; ++j)
+			{
+				double determinant = lines[i][0] * lines[j][1] - lines[i][1] * lines[j][0];
+				if( determinant == 0 )
+					continue;
+
+				double x = (lines[i][2] * lines[j][1] - lines[i][1] * lines[j][2]) / determinant;
+				double y = (lines[i][0] * lines[j][2] - lines[i][2] * lines[j][0]) / determinant;
+
+				boolean feasible = true;
+				for(double[] line : lines)
+					feasible &= line[0] * x + line[1] * y <= line[2] + 1e-9;
+
+				if( feasible )
+					ret = Math.min(ret, cost[0] * x + cost[1] * y);
+			}
+
+		return ret;
+	}
+}
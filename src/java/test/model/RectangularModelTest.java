@@ -0,0 +1,133 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import general.Instance;
+import general.PointStore;
+import general.RandomInstance;
+
+public class RectangularModelTest
+{
+	// Lazy rows must not change the optimum: both runs are checked against the enumeration of all box assignments
+	@Test
+	public void lazyMatchesEager()
+	{
+		for(int seed=0; seed<6; ++seed)
+			for(double dispersion : new double[] { 0.6, 1.2 })
+			{
+				Instance instance = RandomInstance.generate(2, 10, 2, dispersion, seed);
+				String name = instance.getName();
+				int expected = enumerate(instance);
+
+				assertEquals(expected, solve(instance, false), 1e-6, name + " eager");
+				assertEquals(expected, solve(instance, true), 1e-6, name + " lazy");
+			}
+	}
+
+	// Subproblems waiting for the single thread share the time limit of the whole solve
+	@Test
+	public void decompositionKeepsTimeLimit()
+	{
+		RectangularModel model = new RectangularModel(RandomInstance.generate(2, 40, 3, 1.2, 1));
+		model.setBackend("bnb");
+		model.setVerbose(false);
+		model.setDecomposition(true);
+		model.setThreads(1);
+		model.setMaxTime(1);
+		model.solve();
+
+		assertTrue(model.getElapsedTime() < 1.8, "took " + model.getElapsedTime() + " sec.");
+	}
+
+	private static double solve(Instance instance, boolean lazy)
+	{
+		RectangularModel model = new RectangularModel(instance);
+		model.setBackend("bnb");
+		model.setVerbose(false);
+		model.showSummary(true);
+		model.setLazy(lazy);
+		model.setMaxTime(60);
+		model.solve();
+
+		assertEquals(MipBackend.Status.Optimal, model.getStatus(), instance.getName());
+		return model.getObjective();
+	}
+
+	// Best assignment of the points of each class to its boxes, a box being the bounding box of its points and costing
+	// the points of other classes strictly inside it
+	private static int enumerate(Instance instance)
+	{
+		PointStore store = instance.getStore();
+		int ret = 0;
+
+		for(int c=0; c<instance.getClasses(); ++c)
+		{
+			int clusters = instance.getClusters(c);
+			int[] own = new int[instance.getPoints()];
+			int count = 0;
+
+			for(int i=0; i<instance.getPoints(); ++i) if( store.getClassID(i) == c )
+				own[count++] = i;
+
+			int[] assignment = new int[count];
+			int best = Integer.MAX_VALUE;
+
+			while( true )
+			{
+				int cost = 0;
+				for(int j=0; j<clusters; ++j)
+					cost += misclassified(instance, c, own, assignment, j);
+
+				best = Math.min(best, cost);
+
+				int k = 0;
+				while( k < count && ++assignment[k] == clusters )
+					assignment[k++] = 0;
+
+				if( k == count )
+					break;
+			}
+
+			ret += best;
+		}
+
+		return ret;
+	}
+
+	private static int misclassified(Instance instance, int classID, int[] own, int[] assignment, int box)
+	{
+		PointStore store = instance.getStore();
+		int dimension = instance.getDimension();
+		double[] min = new double[dimension];
+		double[] max = new double[dimension];
+		boolean empty = true;
+
+		for(int k=0; k<assignment.length; ++k) if( assignment[k] == box )
+		{
+			for(int t=0; t<dimension; ++t)
+			{
+				double x = store.get(own[k], t);
+				min[t] = empty ? x : Math.min(min[t], x);
+				max[t] = empty ? x : Math.max(max[t], x);
+			}
+
+			empty = false;
+		}
+
+		int ret = 0;
+		for(int i=0; !empty && i<instance.getPoints(); ++i) if( store.getClassID(i) != classID )
+		{
+			boolean inside = true;
+			for(int t=0; t<dimension; ++t)
+				inside &= min[t] < store.get(i, t) && store.get(i, t) < max[t];
+
+			if( inside )
+				ret++;
+		}
+
+		return ret;
+	}
+}